@@ -0,0 +1,73 @@
+package nwsimplex.benchmarks;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the defaults used to track regressions: the
+ * allocation rate of each benchmark is recorded by the gc profiler and the
+ * results are written as JSON to {@value #RESULT_FILE}. All JMH command line
+ * options are accepted and take precedence, e.g.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar Solve -rff solve.json
+ * </pre>
+ *
+ * On JDK 16 or newer the forked JVMs get the jdk.incubator.vector module, such
+ * that the vectorized pricing kernel is available.
+ *
+ * @author mfj
+ */
+public class BenchmarkRunner
+{
+
+    /**
+     * the default result file
+     */
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats())
+        {
+            // let jmh answer the query
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!commandLine.getResult().hasValue())
+            options.result(RESULT_FILE);
+        if (commandLine.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!commandLine.getJvmArgsAppend().hasValue() && supportsVectorModule())
+            options.jvmArgsAppend("--add-modules=jdk.incubator.vector");
+
+        new Runner(options.build()).run();
+    }
+
+    // the vector api is incubating since JDK 16
+    private static boolean supportsVectorModule()
+    {
+        String version = System.getProperty("java.specification.version");
+        try
+        {
+            return !version.startsWith("1.") && Integer.parseInt(version) >= 16;
+        }
+        catch (NumberFormatException ex)
+        {
+            return false;
+        }
+    }
+}
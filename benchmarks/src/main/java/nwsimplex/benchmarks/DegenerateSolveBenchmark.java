@@ -0,0 +1,100 @@
+package nwsimplex.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import nwsimplex.core.BlockSearchSolver;
+import nwsimplex.core.SolverMetrics;
+import nwsimplex.core.SolverResult;
+import nwsimplex.generator.GeneratedInstance;
+import nwsimplex.graph.Graph;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full solve on instances with narrow cost ranges, where many
+ * pivots are degenerate, with exact costs, perturbed costs and cost scaling.
+ * Besides the time, the number of pivots and of degenerate pivots of a solve,
+ * which are the same for each solve of an instance, are reported as secondary
+ * results. The degenerate pivots are counted by {@link SolverMetrics}, so the
+ * time includes their overhead. Each solve is validated against the optimum
+ * of the exact costs, which is computed once per trial.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DegenerateSolveBenchmark
+{
+
+    @Param({"8000"})
+    public int vertices;
+    @Param({"10", "100"})
+    public int maxCost;
+    @Param({Workload.TRANSSHIPMENT, Workload.GRID, Workload.TRANSPORTATION})
+    public String family;
+    @Param({"exact", "perturbation", "scaling"})
+    public String costs;
+    private GeneratedInstance instance;
+    private Graph graph;
+    private long optimum;
+
+    /**
+     * The pivots and degenerate pivots of the last solve.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Pivots
+    {
+
+        public long pivots;
+        public long degeneratePivots;
+    }
+
+    @Setup
+    public void generate()
+    {
+        instance = Workload.generate(family, vertices, maxCost);
+        SolverResult result = new BlockSearchSolver(instance.toGraph()).solve();
+        if (!result.isFeasible())
+            throw new IllegalStateException("The instance is infeasible.");
+        optimum = result.getObjective();
+    }
+
+    @Setup(Level.Invocation)
+    public void build()
+    {
+        graph = instance.toGraph();
+    }
+
+    @Benchmark
+    public long solve(Pivots counter)
+    {
+        BlockSearchSolver solver = new BlockSearchSolver(graph);
+        if (costs.equals("perturbation"))
+            solver.setCostPerturbation(true, Workload.SEED);
+        else if (costs.equals("scaling"))
+            solver.setCostScaling(16);
+        SolverMetrics metrics = new SolverMetrics();
+        solver.setMetrics(metrics);
+        SolverResult result = solver.solve();
+        if (result.getObjective() != optimum)
+            throw new IllegalStateException("The solve with " + costs + " costs is not optimal.");
+        counter.pivots = result.getPivots();
+        counter.degeneratePivots = metrics.snapshot().getDegeneratePivots();
+        return result.getObjective();
+    }
+}
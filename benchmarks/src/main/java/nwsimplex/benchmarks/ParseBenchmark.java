@@ -0,0 +1,58 @@
+package nwsimplex.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import nwsimplex.IO.read.ParserGraphImpl;
+import nwsimplex.graph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to parse a .net file into a graph.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark
+{
+
+    @Param({"10000", "100000"})
+    public int vertices;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("nwsimplex", ".net");
+        Workload.generate(Workload.TRANSSHIPMENT, vertices).write(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Graph parse() throws IOException
+    {
+        return new ParserGraphImpl().parse(file);
+    }
+}
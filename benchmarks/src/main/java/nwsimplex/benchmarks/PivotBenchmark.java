@@ -0,0 +1,66 @@
+package nwsimplex.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import nwsimplex.core.BlockSearchSolver;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single pivot, which is the cycle identification, the flow
+ * augmentation and the tree update, without pricing. The instance is solved
+ * once, afterwards the edges outside the spanning tree enter it one after
+ * another. Each such pivot keeps a valid spanning tree, so the measured
+ * pivots operate on trees shaped like those of a real solve.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PivotBenchmark
+{
+
+    @Param({"1000", "10000"})
+    public int vertices;
+    private Graph graph;
+    private BlockSearchSolver solver;
+    private int next = 0;
+
+    @Setup
+    public void setUp()
+    {
+        graph = Workload.generate(Workload.TRANSSHIPMENT, vertices).toGraph();
+        solver = new BlockSearchSolver(graph);
+        solver.run();
+    }
+
+    @Benchmark
+    public Edge pivot()
+    {
+        // the next edge at one of its bounds
+        Edge entering;
+        do
+        {
+            entering = graph.edgeAt(next);
+            next = next + 1 < graph.getNumberOfEdges() ? next + 1 : 0;
+        }
+        while (!solver.getLowerBoundEdges().contains(entering) && !solver.getUpperBoundEdges().contains(entering));
+
+        solver.pivot(entering);
+        return entering;
+    }
+}
@@ -0,0 +1,77 @@
+package nwsimplex.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import nwsimplex.core.PricingKernel;
+import nwsimplex.generator.GeneratedInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single pricing pass over all edges, for the scalar and the
+ * vectorized kernel. The vectorized kernel requires JDK 16 or newer, which the
+ * {@link BenchmarkRunner} takes care of, otherwise its setup fails.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PricingBenchmark
+{
+
+    @Param({"10000", "100000"})
+    public int vertices;
+    @Param({"scalar", "vector"})
+    public String kernel;
+    private PricingKernel pricingKernel;
+    private int[] cost, from, to, state;
+    private long[] potential;
+    private int numberOfEdges;
+
+    @Setup
+    public void setUp()
+    {
+        if (kernel.equals("scalar"))
+            pricingKernel = new PricingKernel.ScalarPricingKernel();
+        else
+        {
+            pricingKernel = PricingKernel.getInstance();
+            if (pricingKernel instanceof PricingKernel.ScalarPricingKernel)
+                throw new IllegalStateException("The vectorized kernel is not available.");
+        }
+
+        GeneratedInstance instance = Workload.generate(Workload.TRANSSHIPMENT, vertices);
+        numberOfEdges = instance.getNumberOfEdges();
+        cost = instance.getCost();
+        from = instance.getFrom();
+        to = instance.getTo();
+
+        // a random mix of states and potentials, such that some edges violate
+        Random random = new Random(Workload.SEED);
+        state = new int[numberOfEdges];
+        for (int e = 0; e < numberOfEdges; e++)
+            state[e] = random.nextInt(3) - 1;
+        potential = new long[vertices + 1];
+        for (int v = 0; v <= vertices; v++)
+            potential[v] = random.nextInt(2000) - 1000;
+    }
+
+    @Benchmark
+    public int pricingPass()
+    {
+        return pricingKernel.findMostViolating(cost, from, to, state, potential, 0, numberOfEdges);
+    }
+}
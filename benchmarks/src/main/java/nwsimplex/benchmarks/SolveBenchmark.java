@@ -0,0 +1,64 @@
+package nwsimplex.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import nwsimplex.core.BlockSearchSolver;
+import nwsimplex.generator.GeneratedInstance;
+import nwsimplex.graph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full solve with the block search solver on each instance family.
+ * Each invocation solves a fresh copy of the graph, whose construction is not
+ * measured.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SolveBenchmark
+{
+
+    @Param({"1000", "4000", "10000"})
+    public int vertices;
+    @Param({Workload.TRANSSHIPMENT, Workload.GRID, Workload.TRANSPORTATION})
+    public String family;
+    private GeneratedInstance instance;
+    private Graph graph;
+
+    @Setup
+    public void generate()
+    {
+        instance = Workload.generate(family, vertices);
+    }
+
+    @Setup(Level.Invocation)
+    public void build()
+    {
+        graph = instance.toGraph();
+    }
+
+    @Benchmark
+    public long solve()
+    {
+        BlockSearchSolver solver = new BlockSearchSolver(graph);
+        solver.run();
+        if (!solver.isFeasible())
+            throw new IllegalStateException("The instance is infeasible.");
+        return solver.getObjective();
+    }
+}
@@ -0,0 +1,122 @@
+package nwsimplex.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.GraphBuilder;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of a tree update which re-hangs a huge subtree, with
+ * the serial and the parallel subtree update. The tree is deep and wide:
+ * each vertex hangs below one of the {@code width} vertices added before it.
+ * Each pivot swaps the edge above the subtree with an edge into its deepest
+ * vertex, so every pivot re-hangs all vertices but one. The sample mode
+ * reports the percentiles of the pivot latency.
+ *
+ * @author mfj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SubtreeUpdateBenchmark
+{
+
+    @Param({"100000", "1000000"})
+    public int vertices;
+    @Param({"64"})
+    public int width;
+    @Param({"serial", "parallel"})
+    public String update;
+    private ForkJoinPool pool;
+    private SpanningTree tree;
+    // the edge above the subtree and the edge into its deepest vertex
+    private Edge top, bottom;
+    private Vertex topVertex, bottomVertex;
+    private boolean topInTree = true;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(Workload.SEED);
+        int n = vertices;
+        GraphBuilder builder = new GraphBuilder(n + 1, n);
+        for (int id = 1; id <= n; id++)
+            builder.addVertex(id, 0);
+        int[] parent = new int[n + 1];
+        builder.addEdge(1, 2, 0, Integer.MAX_VALUE, random.nextInt(100));
+        for (int id = 3; id <= n; id++)
+        {
+            parent[id] = id - 1 - random.nextInt(Math.min(width, id - 2));
+            builder.addEdge(parent[id], id, 0, Integer.MAX_VALUE, random.nextInt(100));
+        }
+        builder.addEdge(1, n, 0, Integer.MAX_VALUE, random.nextInt(100));
+        Graph graph = builder.build();
+
+        // the edges were added in order of their targets, vertex 1 hangs
+        // below the root
+        tree = new SpanningTree();
+        Vertex[] treeVertices = new Vertex[n];
+        Edge[] treeEdges = new Edge[n];
+        long[] potentials = new long[n + 1];
+        treeVertices[0] = graph.getVertex(1);
+        treeEdges[0] = new Edge(0, 0, 0, Integer.MAX_VALUE, treeVertices[0], tree.getRoot());
+        for (int id = 2; id <= n; id++)
+        {
+            Edge e = graph.edgeAt(id - 2);
+            treeVertices[id - 1] = e.to;
+            treeEdges[id - 1] = e;
+            potentials[id] = potentials[e.from.ID] - e.cost;
+        }
+        tree.rebuild(treeVertices, treeEdges, Arrays.copyOfRange(potentials, 1, n + 1), n);
+
+        top = graph.edgeAt(0);
+        bottom = graph.edgeAt(n - 1);
+        topVertex = graph.getVertex(2);
+        bottomVertex = graph.getVertex(n);
+
+        if (update.equals("parallel"))
+        {
+            pool = new ForkJoinPool();
+            tree.setParallelism(pool, SpanningTree.DEFAULT_PARALLEL_THRESHOLD);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    public int pivot()
+    {
+        int size;
+        if (topInTree)
+            size = tree.addEdge(bottom, top, bottomVertex);
+        else
+            size = tree.addEdge(top, bottom, topVertex);
+        topInTree = !topInTree;
+        return size;
+    }
+}
@@ -0,0 +1,71 @@
+package nwsimplex.benchmarks;
+
+import nwsimplex.generator.GeneratedInstance;
+import nwsimplex.generator.GridGenerator;
+import nwsimplex.generator.InstanceGenerator;
+import nwsimplex.generator.TransportationGenerator;
+import nwsimplex.generator.TransshipmentGenerator;
+
+/**
+ * The instances used by the benchmarks. Each family and size is always the
+ * same instance, since the generators are seeded with a fixed seed.
+ *
+ * @author mfj
+ */
+public final class Workload
+{
+
+    public static final long SEED = 4711;
+    public static final String TRANSSHIPMENT = "transshipment";
+    public static final String GRID = "grid";
+    public static final String TRANSPORTATION = "transportation";
+
+    private Workload()
+    {
+    }
+
+    /**
+     * Generates an instance of a family with roughly eight edges per vertex.
+     *
+     * @param family {@link #TRANSSHIPMENT}, {@link #GRID} or
+     * {@link #TRANSPORTATION}
+     * @param vertices the number of vertices
+     * @return the instance
+     */
+    public static GeneratedInstance generate(String family, int vertices)
+    {
+        return generator(family, vertices).generate();
+    }
+
+    /**
+     * Generates an instance of a family whose costs are drawn from
+     * {@code [0, maxCost]}. Narrow cost ranges make many pivots degenerate.
+     *
+     * @param family {@link #TRANSSHIPMENT}, {@link #GRID} or
+     * {@link #TRANSPORTATION}
+     * @param vertices the number of vertices
+     * @param maxCost the largest cost
+     * @return the instance
+     */
+    public static GeneratedInstance generate(String family, int vertices, int maxCost)
+    {
+        return generator(family, vertices).setCostRange(0, maxCost).generate();
+    }
+
+    private static InstanceGenerator generator(String family, int vertices)
+    {
+        switch (family)
+        {
+            case TRANSSHIPMENT:
+                return new TransshipmentGenerator(vertices, 8, SEED);
+            case GRID:
+                int rows = (int) Math.sqrt(vertices);
+                return new GridGenerator(rows, vertices / rows, vertices / 20, vertices / 20, 4 * vertices, SEED);
+            case TRANSPORTATION:
+                int sources = vertices / 2;
+                return new TransportationGenerator(sources, vertices - sources, 16, SEED);
+            default:
+                throw new IllegalArgumentException("Unknown family " + family);
+        }
+    }
+}
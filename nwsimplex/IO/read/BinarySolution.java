@@ -0,0 +1,146 @@
+package nwsimplex.IO.read;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import nwsimplex.IO.write.BinarySolutionWriter;
+import nwsimplex.graph.IntColumn;
+import nwsimplex.graph.LongColumn;
+
+/**
+ * A solution written by {@link BinarySolutionWriter}, which is memory mapped
+ * instead of being parsed. The flows and potentials are read directly from the
+ * file on access.
+ *
+ * @author Kseniya
+ */
+public class BinarySolution implements Closeable {
+
+    private final FileChannel channel;
+    private final long objective;
+    private final int numberOfEdges;
+    private final int vertexDomainSize;
+    private final IntColumn flows;
+    // null if the file does not contain potentials
+    private final LongColumn potentials;
+
+    private BinarySolution(FileChannel channel, long objective, int numberOfEdges, int vertexDomainSize,
+            IntColumn flows, LongColumn potentials) {
+        this.channel = channel;
+        this.objective = objective;
+        this.numberOfEdges = numberOfEdges;
+        this.vertexDomainSize = vertexDomainSize;
+        this.flows = flows;
+        this.potentials = potentials;
+    }
+
+    /**
+     * Maps the solution stored in the given file.
+     * @param filePath path to file
+     * @return the mapped solution
+     * @throws FileFormatException if the file is not a valid solution file
+     */
+    public static BinarySolution map(Path filePath) throws IOException, FileFormatException {
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(BinarySolutionWriter.HEADER_SIZE)
+                    .order(BinarySolutionWriter.BYTE_ORDER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the complete header
+            }
+            header.flip();
+            if (header.remaining() < BinarySolutionWriter.HEADER_SIZE
+                    || header.getInt() != BinarySolutionWriter.MAGIC) {
+                throw new FileFormatException("File %s is not a solution file.", filePath.getFileName().toString());
+            }
+            int version = header.getInt();
+            if (version != BinarySolutionWriter.VERSION) {
+                throw new FileFormatException("Unsupported solution file version %d.", version);
+            }
+            int flags = header.getInt();
+            int numberOfEdges = header.getInt();
+            int vertexDomainSize = header.getInt();
+            header.getInt();
+            long objective = header.getLong();
+            boolean hasPotentials = (flags & BinarySolutionWriter.FLAG_POTENTIALS) != 0;
+
+            long expectedSize = BinarySolutionWriter.HEADER_SIZE + IntColumn.byteSize(numberOfEdges)
+                    + (hasPotentials ? LongColumn.byteSize(vertexDomainSize) : 0);
+            if (channel.size() < expectedSize) {
+                throw new FileFormatException("Solution file %s is truncated.", filePath.getFileName().toString());
+            }
+
+            IntColumn flows = IntColumn.map(channel, FileChannel.MapMode.READ_ONLY, BinarySolutionWriter.BYTE_ORDER,
+                    BinarySolutionWriter.HEADER_SIZE, numberOfEdges);
+            LongColumn potentials = hasPotentials
+                    ? LongColumn.map(channel, FileChannel.MapMode.READ_ONLY, BinarySolutionWriter.BYTE_ORDER,
+                    BinarySolutionWriter.HEADER_SIZE + IntColumn.byteSize(numberOfEdges), vertexDomainSize)
+                    : null;
+            return new BinarySolution(channel, objective, numberOfEdges, vertexDomainSize, flows, potentials);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public long getObjective() {
+        return objective;
+    }
+
+    public int getNumberOfEdges() {
+        return numberOfEdges;
+    }
+
+    public int getVertexDomainSize() {
+        return vertexDomainSize;
+    }
+
+    public boolean hasPotentials() {
+        return potentials != null;
+    }
+
+    /**
+     * Gets the flow of the edge with the given index.
+     * @param edge index of the edge
+     * @return the flow
+     */
+    public int getFlow(int edge) {
+        return flows.get(edge);
+    }
+
+    /**
+     * Gets the potential of the vertex with the given id.
+     * @param vertex id of the vertex
+     * @return the potential
+     * @throws IllegalStateException if the file does not contain potentials
+     */
+    public long getPotential(int vertex) {
+        if (potentials == null) {
+            throw new IllegalStateException("Solution does not contain potentials.");
+        }
+        return potentials.get(vertex);
+    }
+
+    /**
+     * Gets all flows as a read only column, aligned with the edge indices.
+     */
+    public IntColumn flowColumn() {
+        return flows;
+    }
+
+    /**
+     * Gets all potentials as a read only column, or null if the file does not
+     * contain potentials.
+     */
+    public LongColumn potentialColumn() {
+        return potentials;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
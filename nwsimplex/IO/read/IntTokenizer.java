@@ -0,0 +1,84 @@
+package nwsimplex.IO.read;
+
+/**
+ * A hand-written tokenizer that reads the integers of a line one after
+ * another. Everything that is neither a digit nor a leading minus sign is
+ * treated as separator. Can be reused for many lines by resetting it.
+ *
+ * @author Kseniya
+ */
+public class IntTokenizer {
+
+    private String line;
+    private int position;
+
+    /**
+     * Starts reading a new line.
+     * @param line data source
+     * @param start index of the first character to read, used to skip the
+     *        line indicator
+     */
+    public void reset(String line, int start) {
+        this.line = line;
+        this.position = start;
+    }
+
+    /**
+     * Tests if the line contains another integer.
+     * @return true if {@link #nextInt()} can be called
+     */
+    public boolean hasNext() {
+        skipSeparators();
+        return position < line.length();
+    }
+
+    /**
+     * Reads the next integer of the line.
+     * @return the integer
+     * @throws FileFormatException if the line does not contain another integer
+     *         or the integer does not fit into an int
+     */
+    public int nextInt() throws FileFormatException {
+        if (!hasNext()) {
+            throw new FileFormatException("Missing number in line '%s'.", line);
+        }
+        boolean negative = line.charAt(position) == '-';
+        if (negative) {
+            position++;
+        }
+        int start = position;
+        // accumulate negative to cover Integer.MIN_VALUE
+        long value = 0;
+        while (position < line.length()) {
+            int digit = line.charAt(position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 - digit;
+            if (value < Integer.MIN_VALUE) {
+                throw new FileFormatException("Number out of range in line '%s'.", line);
+            }
+            position++;
+        }
+        if (position == start) {
+            throw new FileFormatException("Missing number in line '%s'.", line);
+        }
+        if (!negative) {
+            if (value == Integer.MIN_VALUE) {
+                throw new FileFormatException("Number out of range in line '%s'.", line);
+            }
+            value = -value;
+        }
+        return (int) value;
+    }
+
+    private void skipSeparators() {
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if ((c >= '0' && c <= '9') || c == '-') {
+                return;
+            }
+            position++;
+        }
+    }
+}
@@ -10,14 +10,36 @@ import java.util.regex.Pattern;
  * @author Kseniya
  */
 public abstract class LineType<P extends Parser> {
-    
+
+    /**
+     * Returned by {@link #getFirstCharacter()} if a line type can not be
+     * identified by the first character of a line.
+     */
+    public static final char ANY_CHARACTER = 0;
+    // the line pattern, compiled once on first use
+    private Pattern linePattern;
+
     /**
      * Decides if this line type can parse the given line.
      * @param line data source
      * @return true if the line is of the line type described by this class.
      */
     public boolean matches(String line) {
-        return getLinePattern().matcher(line).matches();
+        if (linePattern == null) {
+            linePattern = getLinePattern();
+        }
+        return linePattern.matcher(line).matches();
+    }
+
+    /**
+     * The character every line of this type starts with. The parser uses it
+     * to dispatch a line directly to the line types that may match it, all
+     * other line types are not tried.
+     * @return the first character or {@link #ANY_CHARACTER} if this line type
+     *         has to be tried for every line
+     */
+    public char getFirstCharacter() {
+        return ANY_CHARACTER;
     }
 
     /**
@@ -29,7 +51,8 @@ public abstract class LineType<P extends Parser> {
     public abstract void parse(String line, P parser);
 
     /**
-     * Describes how the line should look like for successful parsing.
+     * Describes how the line should look like for successful parsing. Called
+     * once per line type instance, the result is reused for every line.
      * @return a Pattern that can match an entire line for matching this line type.
      */
     protected abstract Pattern getLinePattern();
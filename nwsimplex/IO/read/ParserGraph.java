@@ -1,64 +1,123 @@
 package nwsimplex.IO.read;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import nwsimplex.graph.Graph;
 
 /**
  * An abstract implmentation of a graph parser. Handles the file streaming and
- * reads raw data from file.
+ * reads raw data from file. Files ending with <tt>.gz</tt> are decompressed on
+ * the fly by a {@link PipelinedGzipInputStream}.
  *
  * @author Kseniya
  */
 public abstract class ParserGraph implements Parser<Graph> {
 
-    private List<String> lines;
+    /**
+     * the file extension of gzipped files
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+    // lines starting with other characters are dispatched like empty lines
+    private static final int DISPATCH_TABLE_SIZE = 128;
 
     @Override
     public Graph parse(Path filePath) throws IOException, FileFormatException {
-        // do the raw data parsing
-        lines = new LinkedList<>(Files.readAllLines(filePath, Charset.defaultCharset()));
-        // handle empty files
-        if (lines.isEmpty()) {
-            throw new FileFormatException("File %s is empty.", filePath.getFileName().toString());
+        // do the raw data parsing while streaming the file
+        try (BufferedReader reader = openReader(filePath)) {
+            // handle empty files
+            if (parseLines(reader) == 0 && !acceptsEmptyFile()) {
+                throw new FileFormatException("File %s is empty.", filePath.getFileName().toString());
+            }
         }
-        // delegate the actual parsing to the line types
-        parseLines();
         // initialise the graph
         return initGraph();
     }
 
+    /**
+     * Opens the file for reading lines. Gzipped files are decompressed in a
+     * separate thread, so that decompression and parsing overlap.
+     * @param filePath path to file
+     * @return a reader providing the uncompressed lines
+     */
+    protected BufferedReader openReader(Path filePath) throws IOException {
+        if (filePath.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+            return new BufferedReader(new InputStreamReader(
+                    new PipelinedGzipInputStream(Files.newInputStream(filePath)), Charset.defaultCharset()),
+                    PipelinedGzipInputStream.DEFAULT_BUFFER_SIZE);
+        }
+        return Files.newBufferedReader(filePath, Charset.defaultCharset());
+    }
+
     /**
      * For every line in file, an appropriate line type is found. This handles
      * the correct format, extracts the data and converts it to a needed 
      * instance.
+     * @param reader source of the lines
+     * @return the number of read lines
      */
-    private void parseLines() {
-        // get specified line types
-        Collection<LineType> lineTypes = getLineTypes();
+    private int parseLines(BufferedReader reader) throws IOException {
+        // group the specified line types by their first character
+        LineType[][] dispatchTable = createDispatchTable(getLineTypes());
+        int numberOfLines = 0;
         // iterate over all lines
-        Iterator<String> linesIterator = lines.iterator();
-        while (linesIterator.hasNext()) {
-            String nextLine = linesIterator.next();
+        String nextLine;
+        while ((nextLine = reader.readLine()) != null) {
+            numberOfLines++;
+            char first = nextLine.isEmpty() ? LineType.ANY_CHARACTER : nextLine.charAt(0);
+            LineType[] candidates = dispatchTable[first < DISPATCH_TABLE_SIZE ? first : LineType.ANY_CHARACTER];
             // find appropriate line type
-            for (LineType lineType : lineTypes) {
+            for (LineType lineType : candidates) {
                 // line type found
                 if (lineType.matches(nextLine)) {
-                    // delegate the parsing task
+                    // delegate the parsing task, a line has only one type
                     lineType.parse(nextLine, this);
-                    // once the line is parsed, we don't need it anymore
-                    linesIterator.remove();
+                    break;
                 }
             }
         }
+        return numberOfLines;
+    }
+
+    /**
+     * Creates a table that holds for every (ASCII) first character the line
+     * types that may match a line starting with it, in the order they were
+     * specified. Line types without a first character are contained in every
+     * entry.
+     * @param lineTypes the known line types
+     * @return the dispatch table, indexed by the first character
+     */
+    private LineType[][] createDispatchTable(Collection<LineType> lineTypes) {
+        LineType[][] dispatchTable = new LineType[DISPATCH_TABLE_SIZE][];
+        List<LineType> candidates = new ArrayList<>();
+        for (char c = 0; c < DISPATCH_TABLE_SIZE; c++) {
+            candidates.clear();
+            for (LineType lineType : lineTypes) {
+                char first = lineType.getFirstCharacter();
+                if (first == LineType.ANY_CHARACTER || first == c) {
+                    candidates.add(lineType);
+                }
+            }
+            dispatchTable[c] = candidates.toArray(new LineType[candidates.size()]);
+        }
+        return dispatchTable;
     }
     
+    /**
+     * Specifies whether an empty file is a valid input. By default an empty
+     * file is rejected with a {@link FileFormatException}.
+     * @return true if an empty file is parsed like any other file
+     */
+    protected boolean acceptsEmptyFile() {
+        return false;
+    }
+
     /**
      * Specifies the line types that are known in this parser implementation.
      * @return a Collection of {@link LineType LineTypes}
@@ -0,0 +1,256 @@
+package nwsimplex.IO.read;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.Vertex;
+import nwsimplex.util.ParserConstants;
+
+/**
+ * A parser for delta files, which patch an already loaded graph in place
+ * instead of creating a new one. A delta file consists of the following lines,
+ * in any order:
+ *
+ * <pre>
+ * c &lt;comment&gt;
+ * n &lt;id&gt; &lt;balance&gt;                    changes the balance, adds the vertex if unknown
+ * a &lt;from&gt; &lt;to&gt; &lt;low&gt; &lt;cap&gt; &lt;cost&gt;     adds a new edge
+ * ac &lt;from&gt; &lt;to&gt; &lt;cost&gt;                changes the cost of an edge
+ * au &lt;from&gt; &lt;to&gt; &lt;low&gt; &lt;cap&gt;          changes the capacities of an edge
+ * </pre>
+ *
+ * The changes are applied line by line. The edges and vertices that were
+ * changed or added can be obtained afterwards, so that a following solve can
+ * focus on them.
+ *
+ * @author Kseniya
+ */
+public class ParserGraphDelta extends ParserGraph {
+
+    private final IntTokenizer tokenizer = new IntTokenizer();
+    // the graph to patch
+    private final Graph graph;
+    private final Set<Edge> changedEdges = new LinkedHashSet<>();
+    private final Set<Vertex> changedVertices = new LinkedHashSet<>();
+
+    /**
+     * @param graph the graph the delta files are applied to
+     */
+    public ParserGraphDelta(Graph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    protected boolean acceptsEmptyFile() {
+        // an empty delta file is a valid change set without changes
+        return true;
+    }
+
+    @Override
+    protected Graph initGraph() {
+        // the changes are already applied
+        return graph;
+    }
+
+    /**
+     * Gets all edges that were added or whose cost or capacities were changed
+     * by the parsed delta files.
+     * @return the changed edges in the order of their first change
+     */
+    public Collection<Edge> getChangedEdges() {
+        return Collections.unmodifiableSet(changedEdges);
+    }
+
+    /**
+     * Gets all vertices that were added or whose balance was changed by the
+     * parsed delta files.
+     * @return the changed vertices in the order of their first change
+     */
+    public Collection<Vertex> getChangedVertices() {
+        return Collections.unmodifiableSet(changedVertices);
+    }
+
+    /**
+     * Forgets the changes reported so far, e.g. after the follow-up solve.
+     */
+    public void clearChanges() {
+        changedEdges.clear();
+        changedVertices.clear();
+    }
+
+    /**
+     * Finds the edge referenced by a change line.
+     * @throws FileFormatException if the graph does not contain such an edge
+     */
+    private Edge findEdge(int srcID, int targetID, String line) throws FileFormatException {
+        Edge edge = graph.findEdge(srcID, targetID);
+        if (edge == null) {
+            throw new FileFormatException("Line '%s' references an unknown edge.", line);
+        }
+        return edge;
+    }
+
+    @Override
+    protected Collection<LineType> getLineTypes() {
+        return Arrays.asList(new LineType[]{
+                    new LineTypeComment(),
+                    new LineTypeVertex(),
+                    new LineTypeEdge(),
+                    new LineTypeCost(),
+                    new LineTypeCapacity()});
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Line types implementation">
+    private static final Pattern PATTERN_COMMENT = Pattern.compile("c( .*)?");
+    private static final Pattern PATTERN_VERTEX = Pattern.compile("n " + ParserConstants.DIGIT_PATTERN
+            + " " + ParserConstants.DIGIT_PATTERN);
+    private static final Pattern PATTERN_EDGE = Pattern.compile("a " + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN);
+    private static final Pattern PATTERN_COST = Pattern.compile("ac " + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN);
+    private static final Pattern PATTERN_CAPACITY = Pattern.compile("au " + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN);
+
+    protected class LineTypeComment extends LineType {
+
+        @Override
+        public void parse(String line, Parser parser) {
+            // comments carry no changes
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'c';
+        }
+
+        @Override
+        protected Pattern getLinePattern() {
+            return PATTERN_COMMENT;
+        }
+    }
+
+    protected class LineTypeVertex extends LineType {
+
+        @Override
+        public void parse(String line, Parser parser) {
+            tokenizer.reset(line, 1);
+            int id = tokenizer.nextInt();
+            int balance = tokenizer.nextInt();
+            if (id < 0) {
+                throw new FileFormatException("Line '%s' references an invalid vertex.", line);
+            }
+            graph.addVertex(id, balance);
+            changedVertices.add(graph.getVertex(id));
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'n';
+        }
+
+        @Override
+        protected Pattern getLinePattern() {
+            return PATTERN_VERTEX;
+        }
+    }
+
+    protected class LineTypeEdge extends LineType {
+
+        @Override
+        public void parse(String line, Parser parser) {
+            tokenizer.reset(line, 1);
+            int srcID = tokenizer.nextInt();
+            int targetID = tokenizer.nextInt();
+            int lowerCapacity = tokenizer.nextInt();
+            int upperCapacity = tokenizer.nextInt();
+            int cost = tokenizer.nextInt();
+            if (srcID < 0 || targetID < 0) {
+                throw new FileFormatException("Line '%s' references an invalid vertex.", line);
+            }
+            // unknown vertices are added with a balance of zero
+            if (graph.getVertex(srcID) == null) {
+                graph.addVertex(srcID, 0);
+                changedVertices.add(graph.getVertex(srcID));
+            }
+            if (graph.getVertex(targetID) == null) {
+                graph.addVertex(targetID, 0);
+                changedVertices.add(graph.getVertex(targetID));
+            }
+            changedEdges.add(graph.addEdge(lowerCapacity, cost, lowerCapacity, upperCapacity, srcID, targetID));
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'a';
+        }
+
+        @Override
+        protected Pattern getLinePattern() {
+            return PATTERN_EDGE;
+        }
+    }
+
+    protected class LineTypeCost extends LineType {
+
+        @Override
+        public void parse(String line, Parser parser) {
+            tokenizer.reset(line, 2);
+            int srcID = tokenizer.nextInt();
+            int targetID = tokenizer.nextInt();
+            int cost = tokenizer.nextInt();
+            Edge edge = findEdge(srcID, targetID, line);
+            graph.setCost(edge, cost);
+            changedEdges.add(edge);
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'a';
+        }
+
+        @Override
+        protected Pattern getLinePattern() {
+            return PATTERN_COST;
+        }
+    }
+
+    protected class LineTypeCapacity extends LineType {
+
+        @Override
+        public void parse(String line, Parser parser) {
+            tokenizer.reset(line, 2);
+            int srcID = tokenizer.nextInt();
+            int targetID = tokenizer.nextInt();
+            int lowerCapacity = tokenizer.nextInt();
+            int upperCapacity = tokenizer.nextInt();
+            if (lowerCapacity > upperCapacity) {
+                throw new FileFormatException("Line '%s' has a lower capacity above the upper one.", line);
+            }
+            Edge edge = findEdge(srcID, targetID, line);
+            graph.setCapacities(edge, lowerCapacity, upperCapacity);
+            changedEdges.add(edge);
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'a';
+        }
+
+        @Override
+        protected Pattern getLinePattern() {
+            return PATTERN_CAPACITY;
+        }
+    }
+    //</editor-fold>
+}
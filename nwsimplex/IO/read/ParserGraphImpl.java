@@ -1,18 +1,11 @@
 package nwsimplex.IO.read;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import nwsimplex.graph.Edge;
 import nwsimplex.graph.Graph;
-import nwsimplex.graph.Vertex;
+import nwsimplex.graph.GraphBuilder;
 import nwsimplex.util.ParserConstants;
-import nwsimplex.util.VertexUtils;
 
 /**
  * A concrete parser implementation that is capable of handling .net file format
@@ -24,24 +17,22 @@ import nwsimplex.util.VertexUtils;
  */
 public class ParserGraphImpl extends ParserGraph {
 
-    private final Pattern patternDigit = Pattern.compile(ParserConstants.DIGIT_PATTERN);
+    private final IntTokenizer tokenizer = new IntTokenizer();
     
-    // here we store vertices to initialise graph later
-    private final List<Vertex> vertices;
-    // raw edge data will be stored, then converted to edges and validated
-    private final List<RawEdgeData> rawEdges;
+    // vertices and edges are collected in primitive arrays to initialise
+    // the graph later
+    private final GraphBuilder builder;
     // problem line data
     private ProblemDescription stats;
 
     public ParserGraphImpl() {
-        vertices = new LinkedList<>();
-        rawEdges = new LinkedList<>();
+        builder = new GraphBuilder(16, 16);
     }
 
     @Override
     protected Graph initGraph() {
         checkDataConsistency();
-        return new Graph(vertices, initEdgesFromRawEdgeData());
+        return builder.build();
     }
 
     /**
@@ -54,49 +45,25 @@ public class ParserGraphImpl extends ParserGraph {
         if (stats == null) {
             throw new FileFormatException("File does not contain a valid problem line.");
         }
-        if (vertices.size() != stats.getNumberOfVertices()) {
+        if (builder.getNumberOfVertices() != stats.getNumberOfVertices()) {
             throw new FileFormatException("Number of vertices does not match the amount of stored ones.");
         }
-        if (rawEdges.size() != stats.getNumberOfEdges()) {
+        if (builder.getNumberOfEdges() != stats.getNumberOfEdges()) {
             throw new FileFormatException("Number of edges does not match the amount of stored ones.");
         }
+        // every edge must connect vertices stored in file
+        int invalid = builder.findEdgeWithUnknownVertex();
+        if (invalid >= 0) {
+            throw new FileFormatException("An edge stored in file is not valid: "
+                    + "edge %d -> %d references a vertex that does not exist.",
+                    builder.getFrom(invalid), builder.getTo(invalid));
+        }
     }
 
-    /**
-     * Once all vertices and edges data is parsed, we can construct the edges to
-     * create a graph out of. This is being done here.
-     *
-     * @return a Collection of edges if all edges were correctly stored in the
-     * file.
-     * @throws FileFormatException otherwise
-     */
-    private Collection<Edge> initEdgesFromRawEdgeData() throws FileFormatException {
-        // prepare edges container
-        List<Edge> edges = new ArrayList<>(rawEdges.size());
-        Edge edge;
-        try {
-            for (RawEdgeData rawEdgeData : rawEdges) {
-                // find source vertex
-                Vertex srcVertex = VertexUtils.findByID(vertices, rawEdgeData.srcVertexID);
-                // find target vertex
-                Vertex targetVertex = VertexUtils.findByID(vertices, rawEdgeData.targetVertexID);
-                // add edge if both vertices found
-                edge = new Edge(
-                        rawEdgeData.lowerCapacity,
-                        rawEdgeData.cost,
-                        rawEdgeData.lowerCapacity,
-                        rawEdgeData.upperCapacity,
-                        srcVertex,
-                        targetVertex);
-                edges.add(edge);
-            }
-        } catch (NoSuchElementException ex) {
-            // rethrow the error when a referenced vertex was not found
-            // with a more detailed message.
-            throw new FileFormatException(String.format("An edge stored in file "
-                    + "is not valid: %s", ex.getMessage()));
-        }
-        return edges;
+    private static void checkVertexID(int id, String line) throws FileFormatException {
+        if (id < 0) {
+            throw new FileFormatException("Line '%s' references an invalid vertex.", line);
+        }
     }
 
     @Override
@@ -130,24 +97,19 @@ public class ParserGraphImpl extends ParserGraph {
         }
     }
 
-    /**
-     * Data that is read out of an edge line, will be converted to a real edge
-     * after all file data is read.
-     */
-    protected class RawEdgeData implements RawLineData {
-
-        public final int srcVertexID, targetVertexID, cost, lowerCapacity, upperCapacity;
-
-        public RawEdgeData(int srcVertexID, int targetVertexID, int cost, int lowerCapacity, int upperCapacity) {
-            this.srcVertexID = srcVertexID;
-            this.targetVertexID = targetVertexID;
-            this.cost = cost;
-            this.lowerCapacity = lowerCapacity;
-            this.upperCapacity = upperCapacity;
-        }
-    }
-    
         //<editor-fold defaultstate="collapsed" desc="Line types implementation">
+    // the line patterns are compiled once for all parser instances
+    private static final Pattern PATTERN_COMMENT = Pattern.compile("c *");
+    private static final Pattern PATTERN_VERTEX = Pattern.compile("n " + ParserConstants.DIGIT_PATTERN
+            + " " + ParserConstants.DIGIT_PATTERN);
+    private static final Pattern PATTERN_EDGE = Pattern.compile("a " + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN + " "
+            + ParserConstants.DIGIT_PATTERN);
+    private static final Pattern PATTERN_PROBLEM = Pattern.compile("p min " + ParserConstants.DIGIT_PATTERN
+            + " " + ParserConstants.DIGIT_PATTERN);
+
     protected class LineTypeComment extends LineType {
 
         @Override
@@ -156,9 +118,14 @@ public class ParserGraphImpl extends ParserGraph {
             // out of comment lines in this parser implementation.
         }
 
+        @Override
+        public char getFirstCharacter() {
+            return 'c';
+        }
+
         @Override
         protected Pattern getLinePattern() {
-            return Pattern.compile("c *");
+            return PATTERN_COMMENT;
         }
     }
 
@@ -166,22 +133,22 @@ public class ParserGraphImpl extends ParserGraph {
 
         @Override
         public void parse(String line, Parser parser) {
-            int id = -1, balance = -1;
-            Matcher matcherDigit = patternDigit.matcher(line);
-            // read id
-            if (matcherDigit.find()) {
-                id = Integer.parseInt(matcherDigit.group());
-            }
-            // read balance
-            if (matcherDigit.find()) {
-                balance = Integer.parseInt(matcherDigit.group());
-            }
-            vertices.add(new Vertex(id, balance));
+            // the pattern guarantees both numbers
+            tokenizer.reset(line, 1);
+            int id = tokenizer.nextInt();
+            int balance = tokenizer.nextInt();
+            checkVertexID(id, line);
+            builder.addVertex(id, balance);
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'n';
         }
 
         @Override
         protected Pattern getLinePattern() {
-            return Pattern.compile("n " + ParserConstants.DIGIT_PATTERN + " " + ParserConstants.DIGIT_PATTERN);
+            return PATTERN_VERTEX;
         }
     }
 
@@ -189,38 +156,28 @@ public class ParserGraphImpl extends ParserGraph {
 
         @Override
         public void parse(String line, Parser parser) {
-            int srcID = -1, targetID = -1, cost = -1, lowerCapacity = -1, upperCapacity = -1;
-            Matcher matcherDigit = patternDigit.matcher(line);
-            // read source vertex
-            if (matcherDigit.find()) {
-                srcID = Integer.parseInt(matcherDigit.group());
-            }
-            // read target vertex
-            if (matcherDigit.find()) {
-                targetID = Integer.parseInt(matcherDigit.group());
-            }
-            // read cost
-            if (matcherDigit.find()) {
-                lowerCapacity = Integer.parseInt(matcherDigit.group());
-            }
-            // read cost
-            if (matcherDigit.find()) {
-                upperCapacity = Integer.parseInt(matcherDigit.group());
-            }
+            tokenizer.reset(line, 1);
+            // read source and target vertex
+            int srcID = tokenizer.nextInt();
+            int targetID = tokenizer.nextInt();
+            // read capacities
+            int lowerCapacity = tokenizer.nextInt();
+            int upperCapacity = tokenizer.nextInt();
             // read cost
-            if (matcherDigit.find()) {
-                cost = Integer.parseInt(matcherDigit.group());
-            }
-            rawEdges.add(new RawEdgeData(srcID, targetID, cost, lowerCapacity, upperCapacity));
+            int cost = tokenizer.nextInt();
+            checkVertexID(srcID, line);
+            checkVertexID(targetID, line);
+            builder.addEdge(srcID, targetID, lowerCapacity, upperCapacity, cost);
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'a';
         }
 
         @Override
         protected Pattern getLinePattern() {
-            return Pattern.compile("a " + ParserConstants.DIGIT_PATTERN + " "
-                    + ParserConstants.DIGIT_PATTERN + " "
-                    + ParserConstants.DIGIT_PATTERN + " "
-                    + ParserConstants.DIGIT_PATTERN + " "
-                    + ParserConstants.DIGIT_PATTERN);
+            return PATTERN_EDGE;
         }
     }
 
@@ -228,22 +185,24 @@ public class ParserGraphImpl extends ParserGraph {
 
         @Override
         public void parse(String line, Parser parser) {
-            int numberOfVertices = -1, numberOfEdges = -1;
-            Matcher matcherDigit = patternDigit.matcher(line);
+            tokenizer.reset(line, 1);
             // read number of vertices
-            if (matcherDigit.find()) {
-                numberOfVertices = Integer.parseInt(matcherDigit.group());
-            }
+            int numberOfVertices = tokenizer.nextInt();
             // read number of edges
-            if (matcherDigit.find()) {
-                numberOfEdges = Integer.parseInt(matcherDigit.group());
-            }
+            int numberOfEdges = tokenizer.nextInt();
             stats = new ProblemDescription(numberOfVertices, numberOfEdges);
+            // size the arrays once the instance size is known
+            builder.ensureCapacity(numberOfVertices + 1, numberOfEdges);
+        }
+
+        @Override
+        public char getFirstCharacter() {
+            return 'p';
         }
 
         @Override
         protected Pattern getLinePattern() {
-            return Pattern.compile("p min " + ParserConstants.DIGIT_PATTERN + " " + ParserConstants.DIGIT_PATTERN);
+            return PATTERN_PROBLEM;
         }
     }
     //</editor-fold>
@@ -0,0 +1,189 @@
+package nwsimplex.IO.read;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An input stream that decompresses gzipped data in a separate producer thread.
+ * The producer fills fixed size byte buffers and hands them over to the
+ * consumer by a bounded queue, so that decompressing and parsing overlap.
+ * Consumed buffers are handed back to the producer and reused.
+ *
+ * @author Kseniya
+ */
+public class PipelinedGzipInputStream extends InputStream {
+
+    /**
+     * default size of a single buffer in bytes
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    /**
+     * default number of buffers in flight
+     */
+    public static final int DEFAULT_NUMBER_OF_BUFFERS = 4;
+    // a buffer with a length of -1 marks the end of the stream
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<Chunk> empty;
+    private final Thread producer;
+    // an exception thrown by the producer, rethrown to the consumer
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private Chunk current;
+    private int position;
+
+    /**
+     * Starts decompressing the given stream with default buffers.
+     * @param compressed the gzipped source, which is closed by this stream
+     */
+    public PipelinedGzipInputStream(InputStream compressed) {
+        this(compressed, DEFAULT_BUFFER_SIZE, DEFAULT_NUMBER_OF_BUFFERS);
+    }
+
+    /**
+     * Starts decompressing the given stream.
+     * @param compressed the gzipped source, which is closed by this stream
+     * @param bufferSize size of a single buffer in bytes
+     * @param numberOfBuffers number of buffers in flight
+     */
+    public PipelinedGzipInputStream(final InputStream compressed, int bufferSize, int numberOfBuffers) {
+        if (bufferSize < 1 || numberOfBuffers < 1) {
+            throw new IllegalArgumentException();
+        }
+        filled = new ArrayBlockingQueue<>(numberOfBuffers + 1);
+        empty = new ArrayBlockingQueue<>(numberOfBuffers);
+        for (int i = 0; i < numberOfBuffers; i++) {
+            empty.add(new Chunk(new byte[bufferSize]));
+        }
+        producer = new Thread("gzip-decompressor") {
+            @Override
+            public void run() {
+                produce(compressed);
+            }
+        };
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce(InputStream compressed) {
+        try (InputStream in = new GZIPInputStream(compressed, 1 << 16)) {
+            while (!closed) {
+                Chunk chunk = empty.take();
+                // fill the buffer completely, unless the stream ends
+                int length = 0, n = 0;
+                while (length < chunk.data.length && (n = in.read(chunk.data, length, chunk.data.length - length)) >= 0) {
+                    length += n;
+                }
+                chunk.length = length;
+                if (length > 0) {
+                    filled.put(chunk);
+                }
+                if (n < 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            // the consumer closed this stream
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            // signal the end of the stream, there is always room for it, so
+            // the consumer never waits for a producer that has stopped
+            filled.offer(Chunk.END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null || current == Chunk.END ? 0 : current.length - position;
+    }
+
+    // makes sure that the current buffer has unread bytes, false at the end
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        if (current == Chunk.END) {
+            return false;
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null) {
+            empty.offer(current);
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        position = 0;
+        if (current == Chunk.END) {
+            if (failure != null) {
+                rethrow(failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // rethrows a failure of the producer in the thread of the consumer
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException(failure);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            producer.interrupt();
+        }
+    }
+
+    // a buffer and the number of valid bytes within it
+    private static class Chunk {
+
+        static final Chunk END = new Chunk(new byte[0]);
+        final byte[] data;
+        int length;
+
+        Chunk(byte[] data) {
+            this.data = data;
+        }
+    }
+}
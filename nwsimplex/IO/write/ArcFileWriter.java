@@ -0,0 +1,139 @@
+package nwsimplex.IO.write;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+
+/**
+ * Writes arcs one by one into a binary arc file, which is streamed by the
+ * {@link nwsimplex.core.StreamingSolver} instead of being held in memory. The
+ * arcs are numbered in the order they are added. All values are little endian.
+ *
+ * <pre>
+ * int  magic               'MCFA'
+ * int  version
+ * long numberOfArcs        m
+ * int  arc[m][5]           from, to, lowerCapacity, upperCapacity, cost
+ * </pre>
+ *
+ * The number of arcs is written into the header when the writer is closed.
+ *
+ * @author Kseniya
+ */
+public class ArcFileWriter implements Closeable {
+
+    /**
+     * the first int of every arc file
+     */
+    public static final int MAGIC = 0x4146434D;
+    /**
+     * the version of the format
+     */
+    public static final int VERSION = 1;
+    /**
+     * the size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 16;
+    /**
+     * the size of a single arc in bytes
+     */
+    public static final int ARC_SIZE = 20;
+    /**
+     * the byte order of all values
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    // size of the staging buffer in bytes, a multiple of the arc size
+    private static final int BUFFER_SIZE = ARC_SIZE << 16;
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private long numberOfArcs;
+
+    /**
+     * Creates an empty arc file, an existing file is overwritten.
+     * @param filePath the file
+     * @throws IOException
+     */
+    public ArcFileWriter(Path filePath) throws IOException {
+        channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+        // the header is completed by close()
+        buffer.position(HEADER_SIZE);
+    }
+
+    /**
+     * Writes all edges of a graph into an arc file, in the order of their
+     * indices.
+     * @param graph the graph
+     * @param filePath the file
+     * @throws IOException
+     */
+    public static void write(Graph graph, Path filePath) throws IOException {
+        try (ArcFileWriter writer = new ArcFileWriter(filePath)) {
+            for (int i = 0; i < graph.getNumberOfEdges(); i++) {
+                Edge e = graph.edgeAt(i);
+                writer.add(e.from.ID, e.to.ID, e.lowerCapacity, e.upperCapacity, (int) e.cost);
+            }
+        }
+    }
+
+    /**
+     * Appends an arc.
+     * @return the number of the arc
+     */
+    public long add(int fromId, int toId, int lowerCapacity, int upperCapacity, int cost) throws IOException {
+        if (lowerCapacity > upperCapacity) {
+            throw new IllegalArgumentException("lower capacity > upper capacity");
+        }
+        if (buffer.remaining() < ARC_SIZE) {
+            flushBuffer();
+        }
+        buffer.putInt(fromId);
+        buffer.putInt(toId);
+        buffer.putInt(lowerCapacity);
+        buffer.putInt(upperCapacity);
+        buffer.putInt(cost);
+        return numberOfArcs++;
+    }
+
+    /**
+     * Gets the number of arcs added so far.
+     */
+    public long getNumberOfArcs() {
+        return numberOfArcs;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flushBuffer();
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(numberOfArcs);
+            buffer.flip();
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package nwsimplex.IO.write;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.LongColumn;
+import nwsimplex.graph.OffHeapGraph;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Writes a solution in a columnar binary format, which can be memory mapped by
+ * the consumer instead of being parsed, see
+ * {@link nwsimplex.IO.read.BinarySolution}. All values are little endian.
+ *
+ * <pre>
+ * int  magic               'MCFS'
+ * int  version
+ * int  flags               FLAG_POTENTIALS if potentials are present
+ * int  numberOfEdges       m
+ * int  vertexDomainSize    n
+ * int  reserved
+ * long objective           sum of cost * flow
+ * int  flow[m]             aligned with the edge indices
+ * long potential[n]        aligned with the vertex id's, optional
+ * </pre>
+ *
+ * The file is written in a single pass through a FileChannel, staging the data
+ * within a direct buffer. The objective is summed up while the flows are
+ * written and patched into the header at the end.
+ *
+ * @author Kseniya
+ */
+public class BinarySolutionWriter implements SolutionWriter {
+
+    /**
+     * the first int of every solution file
+     */
+    public static final int MAGIC = 0x5346434D;
+    /**
+     * the version of the format
+     */
+    public static final int VERSION = 2;
+    /**
+     * flag which marks that potentials are stored after the flows
+     */
+    public static final int FLAG_POTENTIALS = 1;
+    /**
+     * the size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 32;
+    // the position of the objective within the header
+    private static final int OBJECTIVE_OFFSET = 24;
+    /**
+     * the byte order of all values
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    // size of the staging buffer in bytes
+    private static final int BUFFER_SIZE = 1 << 20;
+    private final boolean withPotentials;
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    public BinarySolutionWriter() {
+        this(true);
+    }
+
+    /**
+     * @param withPotentials if true, the vertex potentials are stored as well
+     */
+    public BinarySolutionWriter(boolean withPotentials) {
+        this.withPotentials = withPotentials;
+    }
+
+    @Override
+    public void write(Graph graph, Path filePath) throws IOException {
+        begin(filePath, graph.getNumberOfEdges(), graph.getVertexDomainSize());
+        long objective = 0;
+        try {
+            Iterator<Edge> edges = graph.edgeIterator();
+            while (edges.hasNext()) {
+                Edge edge = edges.next();
+                objective += edge.cost * edge.flow;
+                put(edge.flow);
+            }
+            if (withPotentials) {
+                int id = 0;
+                Iterator<Vertex> vertices = graph.vertexIterator();
+                while (vertices.hasNext()) {
+                    Vertex vertex = vertices.next();
+                    // unused id's get a potential of zero
+                    for (; id < vertex.ID; id++) {
+                        put(0L);
+                    }
+                    put(vertex.getPotential());
+                    id++;
+                }
+                for (; id < graph.getVertexDomainSize(); id++) {
+                    put(0L);
+                }
+            }
+        } finally {
+            end(objective);
+        }
+    }
+
+    @Override
+    public void write(OffHeapGraph graph, Path filePath) throws IOException {
+        int numberOfEdges = graph.getNumberOfEdges();
+        begin(filePath, numberOfEdges, graph.getVertexDomainSize());
+        long objective = 0;
+        try {
+            // the flows and costs are copied blockwise through heap arrays
+            int[] flows = new int[8192], costs = new int[8192];
+            for (int i = 0; i < numberOfEdges; i += flows.length) {
+                int length = Math.min(flows.length, numberOfEdges - i);
+                graph.flowColumn().get(i, flows, 0, length);
+                graph.costColumn().get(i, costs, 0, length);
+                for (int j = 0; j < length; j++) {
+                    objective += (long) costs[j] * flows[j];
+                    put(flows[j]);
+                }
+            }
+            if (withPotentials) {
+                put(graph.potentialColumn(), graph.getVertexDomainSize());
+            }
+        } finally {
+            end(objective);
+        }
+    }
+
+    // writes the header with a placeholder for the objective
+    private void begin(Path filePath, int numberOfEdges, int vertexDomainSize) throws IOException {
+        channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+        }
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(withPotentials ? FLAG_POTENTIALS : 0);
+        buffer.putInt(numberOfEdges);
+        buffer.putInt(vertexDomainSize);
+        buffer.putInt(0);
+        buffer.putLong(0);
+    }
+
+    private void put(int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            flushBuffer();
+        }
+        buffer.putInt(value);
+    }
+
+    private void put(long value) throws IOException {
+        if (buffer.remaining() < 8) {
+            flushBuffer();
+        }
+        buffer.putLong(value);
+    }
+
+    // copies a column blockwise through a heap array
+    private void put(LongColumn column, int size) throws IOException {
+        long[] block = new long[8192];
+        for (int i = 0; i < size; i += block.length) {
+            int length = Math.min(block.length, size - i);
+            column.get(i, block, 0, length);
+            for (int j = 0; j < length; j++) {
+                put(block[j]);
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // flushes the staged data and patches the objective into the header
+    private void end(long objective) throws IOException {
+        try {
+            flushBuffer();
+            buffer.putLong(objective);
+            buffer.flip();
+            long position = OBJECTIVE_OFFSET;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package nwsimplex.IO.write;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.OffHeapGraph;
+
+/**
+ * Writes a solution in the DIMACS format: a solution line {@code s <cost>}
+ * followed by a flow line {@code f <from> <to> <flow>} for every edge.
+ *
+ * The lines are formatted directly into a large byte buffer, without
+ * String.format or any per line String instances, and the buffer is handed to
+ * the output stream whenever it is full. Optionally only edges with nonzero
+ * flow are written.
+ *
+ * @author Kseniya
+ */
+public class DimacsSolutionWriter implements SolutionWriter {
+
+    /**
+     * default size of the output buffer in bytes
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    // longest possible line: "f " + 3 ints with sign and separator
+    private static final int MAX_LINE_LENGTH = 2 + 3 * 12;
+    private final byte[] buffer;
+    private final boolean nonzeroOnly;
+    private OutputStream out;
+    private int position;
+
+    public DimacsSolutionWriter() {
+        this(false);
+    }
+
+    /**
+     * @param nonzeroOnly if true, flow lines are only written for edges with
+     * nonzero flow
+     */
+    public DimacsSolutionWriter(boolean nonzeroOnly) {
+        this(nonzeroOnly, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param nonzeroOnly if true, flow lines are only written for edges with
+     * nonzero flow
+     * @param bufferSize the size of the output buffer in bytes
+     */
+    public DimacsSolutionWriter(boolean nonzeroOnly, int bufferSize) {
+        if (bufferSize < MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException(String.format("Buffer size must be at least %d.", MAX_LINE_LENGTH));
+        }
+        this.buffer = new byte[bufferSize];
+        this.nonzeroOnly = nonzeroOnly;
+    }
+
+    @Override
+    public void write(Graph graph, Path filePath) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(filePath)) {
+            write(graph, stream);
+        }
+    }
+
+    @Override
+    public void write(OffHeapGraph graph, Path filePath) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(filePath)) {
+            write(graph, stream);
+        }
+    }
+
+    /**
+     * Writes the solution stored within the given graph to a stream. The
+     * stream is flushed but not closed.
+     * @param graph the solved graph
+     * @param stream the target stream
+     */
+    public void write(Graph graph, OutputStream stream) throws IOException {
+        // the total cost must be known before the first flow line
+        long totalCost = 0;
+        Iterator<Edge> edges = graph.edgeIterator();
+        while (edges.hasNext()) {
+            Edge edge = edges.next();
+            totalCost += edge.cost * edge.flow;
+        }
+
+        begin(stream, totalCost);
+        edges = graph.edgeIterator();
+        while (edges.hasNext()) {
+            Edge edge = edges.next();
+            if (!nonzeroOnly || edge.flow != 0) {
+                writeFlowLine(edge.from.ID, edge.to.ID, edge.flow);
+            }
+        }
+        end();
+    }
+
+    /**
+     * Writes the solution stored within the given off-heap graph to a stream.
+     * The stream is flushed but not closed.
+     * @param graph the solved graph
+     * @param stream the target stream
+     */
+    public void write(OffHeapGraph graph, OutputStream stream) throws IOException {
+        int numberOfEdges = graph.getNumberOfEdges();
+        long totalCost = 0;
+        for (int e = 0; e < numberOfEdges; e++) {
+            totalCost += (long) graph.getCost(e) * graph.getFlow(e);
+        }
+
+        begin(stream, totalCost);
+        for (int e = 0; e < numberOfEdges; e++) {
+            int flow = graph.getFlow(e);
+            if (!nonzeroOnly || flow != 0) {
+                writeFlowLine(graph.getFrom(e), graph.getTo(e), flow);
+            }
+        }
+        end();
+    }
+
+    private void begin(OutputStream stream, long totalCost) {
+        out = stream;
+        position = 0;
+        buffer[position++] = 's';
+        buffer[position++] = ' ';
+        writeNumber(totalCost);
+        buffer[position++] = '\n';
+    }
+
+    private void end() throws IOException {
+        flushBuffer();
+        out.flush();
+        out = null;
+    }
+
+    private void writeFlowLine(int from, int to, int flow) throws IOException {
+        if (position > buffer.length - MAX_LINE_LENGTH) {
+            flushBuffer();
+        }
+        buffer[position++] = 'f';
+        buffer[position++] = ' ';
+        writeNumber(from);
+        buffer[position++] = ' ';
+        writeNumber(to);
+        buffer[position++] = ' ';
+        writeNumber(flow);
+        buffer[position++] = '\n';
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Formats a number into the buffer. The digits are computed on the
+     * negative value, so that Long.MIN_VALUE needs no special handling.
+     */
+    private void writeNumber(long value) {
+        long negative = value;
+        if (value < 0) {
+            buffer[position++] = '-';
+        } else {
+            negative = -value;
+        }
+        // count the digits
+        int digits = 1;
+        for (long v = negative; v <= -10; v /= 10) {
+            digits++;
+        }
+        // write them from right to left
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' - (negative % 10));
+            negative /= 10;
+        }
+        position = end;
+    }
+}
@@ -0,0 +1,29 @@
+package nwsimplex.IO.write;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.OffHeapGraph;
+
+/**
+ * Writes the solution of a solved instance, which is the flow of every edge
+ * within the graph, to a file.
+ *
+ * @author Kseniya
+ */
+public interface SolutionWriter {
+
+    /**
+     * Writes the solution stored within the given graph.
+     * @param graph the solved graph
+     * @param filePath path to file, an existing file is overwritten
+     */
+    public void write(Graph graph, Path filePath) throws IOException;
+
+    /**
+     * Writes the solution stored within the given off-heap graph.
+     * @param graph the solved graph
+     * @param filePath path to file, an existing file is overwritten
+     */
+    public void write(OffHeapGraph graph, Path filePath) throws IOException;
+}
@@ -0,0 +1,426 @@
+package nwsimplex.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import nwsimplex.IO.read.FileFormatException;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * A network simplex solver whose edges are all stored within its graph. This
+ * allows the features which need to see every edge:
+ *
+ * An instance whose graph is a forest is solved without any pivot by the
+ * {@link ForestSolver}, since its flow is determined by the balances alone.
+ * Before the first pivot, an optional {@link FeasibilityChecker} rejects
+ * infeasible instances by a maximum flow computation, which is much faster
+ * than pivoting until the artificial flow proves the infeasibility.
+ *
+ * Degenerate pivots, which are frequent if the costs span a narrow range, can
+ * be reduced by solving approximate costs first: cost scaling solves the
+ * costs divided by powers of a factor, from coarse to fine, and cost
+ * perturbation breaks ties between reduced costs by small random offsets on
+ * costs which are scaled up. Each stage starts from the basis of the previous
+ * one, and the last stage always solves the exact costs, so the result is
+ * exactly optimal. Both are disabled by default: cycling is already prevented
+ * by strongly feasible trees, which correspond to a lexicographic perturbation
+ * of the supplies, and on the generated families the approximate stages
+ * mostly add pivots, see the {@code DegenerateSolveBenchmark}.
+ *
+ * Long solves can write their basis periodically to a checkpoint file, see
+ * {@link #setCheckpoint(Path, long, TimeUnit)}, from which a new solver for
+ * the same graph can resume by {@link #resume(Path)}. An optimal basis can be
+ * analyzed by {@link #getSensitivityAnalysis()}.
+ *
+ * @author mfj
+ */
+public abstract class AbstractGraphSolver extends AbstractMCFSolver
+{
+
+    private boolean checkFeasibility = false;
+    private boolean forestPath = true;
+    private int costScalingFactor = 0;
+    private boolean perturbation = false;
+    private long perturbationSeed;
+    // the current approximate cost stage, -1 for the exact costs
+    private int stage = -1;
+    // the exact costs of the edges while approximate costs are solved
+    private long[] exactCosts;
+    private long stageArtificialCost;
+    // the result of the feasibility check, null if it was not performed
+    private FeasibilityChecker.Result feasibility;
+    // the checkpoint file, null if checkpointing is disabled
+    private Path checkpointPath;
+    private long checkpointIntervalNanos;
+    private long lastCheckpoint;
+    private Checkpoint checkpoint;
+    private IOException checkpointError;
+
+    public AbstractGraphSolver(Graph graph, SpanningTree spanningTree)
+    {
+        super(graph, spanningTree);
+    }
+
+    /**
+     * Enables or disables the feasibility check, which is performed by the
+     * first call of {@link #solve()} before the spanning tree is initialized.
+     * If the check fails, the solve stops with the status
+     * {@link SolverStatus#Infeasible} without any pivot.
+     *
+     * @param checkFeasibility true to check the feasibility
+     */
+    public void setFeasibilityCheck(boolean checkFeasibility)
+    {
+        this.checkFeasibility = checkFeasibility;
+    }
+
+    /**
+     * Gets the result of the feasibility check, which contains the minimum
+     * cut that proves an infeasibility.
+     *
+     * @return the result or null if no check was performed
+     */
+    public FeasibilityChecker.Result getFeasibilityCheck()
+    {
+        return feasibility;
+    }
+
+    /**
+     * Enables or disables the solution of forest shaped instances without
+     * pivoting, which is enabled by default. The first call of
+     * {@link #solve()} tests if the graph is a forest and if so computes the
+     * flow in linear time.
+     *
+     * @param forestPath true to solve forests without pivoting
+     */
+    public void setForestPath(boolean forestPath)
+    {
+        this.forestPath = forestPath;
+    }
+
+    /**
+     * Enables or disables cost scaling. The first solve then solves the costs
+     * divided by decreasing powers of the factor, rounded down, each stage
+     * starting from the optimal basis of the coarser one, until it solves the
+     * exact costs. While an approximate stage is solved, the objective of the
+     * progress reports refers to the approximate costs.
+     *
+     * @param factor the factor between two stages, at least 2, or 0 to
+     * disable cost scaling
+     */
+    public void setCostScaling(int factor)
+    {
+        if (factor == 1 || factor < 0)
+            throw new IllegalArgumentException("The scaling factor must be at least 2.");
+        this.costScalingFactor = factor;
+    }
+
+    /**
+     * Enables or disables cost perturbation. The first solve then solves the
+     * costs multiplied by a factor {@code K} plus a random offset in
+     * {@code [0, K)} for each edge, so that the reduced costs rarely tie, and
+     * afterwards the exact costs from the basis found. The factor is as large
+     * as possible up to 1024 without leaving the int range of the costs. With
+     * cost scaling, each scaled stage is perturbed.
+     *
+     * @param enabled true to perturb the costs
+     * @param seed the seed of the random offsets
+     */
+    public void setCostPerturbation(boolean enabled, long seed)
+    {
+        this.perturbation = enabled;
+        this.perturbationSeed = seed;
+    }
+
+    /**
+     * Analyzes how far the costs and capacities of the edges can change
+     * before the optimal basis changes, see {@link SensitivityAnalysis}.
+     *
+     * @return the ranges of all edges
+     * @throws IllegalStateException if the last solve did not find an optimal
+     * flow
+     */
+    public SensitivityAnalysis getSensitivityAnalysis()
+    {
+        SolverResult result = getResult();
+        if (result == null || result.getStatus() != SolverStatus.Optimal)
+            throw new IllegalStateException("The flow is not optimal.");
+        return new SensitivityAnalysis(getGraph(), getSpanningTree());
+    }
+
+    /**
+     * Enables periodic checkpointing. The checkpoint is written after a batch
+     * of pivots once the interval has passed since the last checkpoint, and
+     * when a solve stops because a limit was exceeded or it was cancelled.
+     *
+     * @param path the checkpoint file or null to disable checkpointing
+     * @param interval the minimum time between two checkpoints
+     * @param unit the unit of the interval
+     */
+    public void setCheckpoint(Path path, long interval, TimeUnit unit)
+    {
+        this.checkpointPath = path;
+        this.checkpointIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Gets the error of the last failed periodic checkpoint. A failed
+     * checkpoint does not stop the solve, it is tried again after the next
+     * interval.
+     *
+     * @return the error or null if the last checkpoint succeeded
+     */
+    public IOException getCheckpointError()
+    {
+        return checkpointError;
+    }
+
+    /**
+     * Writes the current basis to a checkpoint file.
+     *
+     * @param path the checkpoint file
+     * @throws IOException
+     */
+    public void writeCheckpoint(Path path) throws IOException
+    {
+        if (!isInitialized())
+            initialize();
+        getCheckpoint().write(path, getGraph(), getSpanningTree(), getArtificialCost(),
+                Checkpoint.fingerprint(getGraph()));
+    }
+
+    /**
+     * Restores the basis from a checkpoint file, which was written by a solver
+     * for the same graph. Afterwards {@link #solve()} continues from the
+     * restored basis. A rejected checkpoint leaves the flows and the basis of
+     * this solver unchanged.
+     *
+     * @param path the checkpoint file
+     * @throws IOException
+     * @throws FileFormatException if the file is not a checkpoint of the graph
+     */
+    public void resume(Path path) throws IOException, FileFormatException
+    {
+        Graph graph = getGraph();
+        getCheckpoint().read(path, graph, getSpanningTree(), getArtificialCost(), Checkpoint.fingerprint(graph));
+
+        boolean[] isTreeEdge = new boolean[graph.getNumberOfEdges()];
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            Edge e = vertices.next().getTreeEdge();
+            if (e.getIndex() >= 0)
+                isTreeEdge[e.getIndex()] = true;
+        }
+
+        Collection<Edge> lowerBoundEdges = getLowerBoundEdges(), upperBoundEdges = getUpperBoundEdges();
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+        {
+            Edge e = graph.edgeAt(i);
+            lowerBoundEdges.remove(e);
+            upperBoundEdges.remove(e);
+            if (isTreeEdge[i])
+                continue;
+            // the checkpoint ensures that each edge outside the tree is at a
+            // bound
+            if (e.hasLowerBound())
+                lowerBoundEdges.add(e);
+            else
+                upperBoundEdges.add(e);
+        }
+        setInitialized();
+    }
+
+    private Checkpoint getCheckpoint()
+    {
+        // the fingerprint is computed for each checkpoint, since the graph
+        // may change between two solves
+        if (checkpoint == null)
+            checkpoint = new Checkpoint();
+        return checkpoint;
+    }
+
+    // writes a periodic checkpoint and keeps a failure for later inspection
+    private void tryCheckpoint()
+    {
+        try
+        {
+            writeCheckpoint(checkpointPath);
+            checkpointError = null;
+        }
+        catch (IOException ex)
+        {
+            checkpointError = ex;
+        }
+    }
+
+    @Override
+    public SolverResult solve()
+    {
+        lastCheckpoint = System.nanoTime();
+        return super.solve();
+    }
+
+    @Override
+    protected SolverStatus presolve()
+    {
+        Graph graph = getGraph();
+        if (forestPath && graph.isForest())
+        {
+            boolean feasible = new ForestSolver(graph, getSpanningTree()).solve(getArtificialCost());
+            return feasible ? SolverStatus.Optimal : SolverStatus.Infeasible;
+        }
+        if (checkFeasibility)
+        {
+            feasibility = new FeasibilityChecker().check(graph);
+            if (!feasibility.isFeasible())
+                return SolverStatus.Infeasible;
+        }
+        // approximate costs are only solved from the initial basis, which is
+        // built with the costs of the first stage
+        int first = getFirstCostStage();
+        if (first >= 0)
+            setCostStage(first);
+        return null;
+    }
+
+    // gets the first approximate cost stage, stage k solves the costs divided
+    // by factor^k, stage 0 only exists with perturbation
+    private int getFirstCostStage()
+    {
+        int last = perturbation ? 0 : 1, first = 0;
+        if (costScalingFactor > 0)
+            for (long d = costScalingFactor; d <= getGraph().getMaxAbsoluteCost(); d *= costScalingFactor)
+                first++;
+        return first >= last ? first : -1;
+    }
+
+    /*
+     * Sets the costs of all edges to the costs of a stage, or back to the
+     * exact costs if the stage is -1. The artificial edges of a stage get a
+     * cost which exceeds the cost of any path with the costs of the stage.
+     */
+    private void setCostStage(int stage)
+    {
+        Graph graph = getGraph();
+        int m = graph.getNumberOfEdges();
+        if (exactCosts == null)
+        {
+            exactCosts = new long[m];
+            for (int i = 0; i < m; i++)
+                exactCosts[i] = graph.edgeAt(i).cost;
+        }
+
+        this.stage = stage;
+        if (stage < 0)
+        {
+            for (int i = 0; i < m; i++)
+                graph.edgeAt(i).cost = exactCosts[i];
+            exactCosts = null;
+        }
+        else
+        {
+            long divisor = 1;
+            for (int k = 0; k < stage; k++)
+                divisor *= costScalingFactor;
+            // the scale of the perturbed costs, their offsets are below it
+            long scale = perturbation
+                    ? Math.max(1, Math.min(1 << 10, Integer.MAX_VALUE / (graph.getMaxAbsoluteCost() / divisor + 2)))
+                    : 1;
+            Random random = new Random(perturbationSeed);
+            long max = 0;
+            for (int i = 0; i < m; i++)
+            {
+                long c = exactCosts[i];
+                // rounded down, also for negative costs
+                c = c >= 0 ? c / divisor : -((-c + divisor - 1) / divisor);
+                c *= scale;
+                if (perturbation)
+                    c += random.nextInt((int) scale);
+                graph.edgeAt(i).cost = c;
+                max = Math.max(max, Math.abs(c));
+            }
+            stageArtificialCost = artificialCost(graph.getNumberOfVertices(), max);
+        }
+        costsChanged();
+    }
+
+    /**
+     * Called after the costs of the edges were changed by a cost stage, see
+     * {@link #setCostScaling(int)}. A subclass which keeps a copy of the costs
+     * updates it here.
+     */
+    protected void costsChanged()
+    {
+    }
+
+    /**
+     * Gets the cost of the artificial edges for the costs which are currently
+     * solved.
+     */
+    @Override
+    protected long getArtificialCost()
+    {
+        return stage >= 0 ? stageArtificialCost : super.getArtificialCost();
+    }
+
+    @Override
+    protected boolean nextCosts()
+    {
+        if (stage < 0)
+            return false;
+        // stage 0 equals the exact costs without perturbation
+        setCostStage(stage > 1 || perturbation ? stage - 1 : -1);
+        updateTree();
+        return true;
+    }
+
+    // gives the artificial edges of the tree the cost of the current stage
+    // and recomputes the potentials and the total cost
+    private void updateTree()
+    {
+        long artificialCost = getArtificialCost();
+        SpanningTree tree = getSpanningTree();
+        Iterator<Vertex> vertices = getGraph().vertexIterator();
+        while (vertices.hasNext())
+        {
+            Edge e = vertices.next().getTreeEdge();
+            if (tree.isConnectedToRoot(e))
+                e.cost = artificialCost;
+        }
+        tree.computePotentials();
+        setInitialized();
+    }
+
+    @Override
+    protected void batchCompleted()
+    {
+        // the potentials of approximate costs must not be saved
+        if (checkpointPath != null && stage < 0
+                && System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos)
+        {
+            tryCheckpoint();
+            lastCheckpoint = System.nanoTime();
+        }
+    }
+
+    @Override
+    protected void solveStopped(SolverStatus status)
+    {
+        // an interrupted solve continues with the exact costs
+        if (stage >= 0)
+        {
+            setCostStage(-1);
+            updateTree();
+        }
+        // keep the work of an interrupted solve
+        if (checkpointPath != null && status.isInterrupted())
+            tryCheckpoint();
+    }
+}
@@ -7,6 +7,8 @@ package nwsimplex.core;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import nwsimplex.graph.Edge;
 import nwsimplex.graph.Graph;
 import nwsimplex.graph.SpanningTree;
@@ -15,20 +17,62 @@ import nwsimplex.graph.SpanningTree.CycleIterator;
 import nwsimplex.graph.Vertex;
 
 /**
- * A class which performs the
+ * A class which performs the network simplex algorithm. The algorithm starts
+ * with a spanning tree of artificial edges, which connect each vertex to an
+ * artificial root, while all edges of the graph carry their lower capacity.
+ * The artificial edges are expensive enough that an optimal solution of a
+ * feasible instance does not use them. Subclasses define the pricing rule and
+ * keep track of the edges at their lower and upper bound. Solvers whose edges
+ * are stored within the graph extend {@link AbstractGraphSolver}, which adds
+ * the features that need all edges.
+ *
+ * A solve can be bounded by a time and a pivot limit and cancelled by a
+ * {@link CancelToken} or by interrupting the solving thread. These conditions
+ * are checked after each batch of pivots, so the pivot loop itself contains no
+ * checks. A stopped solver keeps its state, calling {@link #solve()} again
+ * continues where it stopped.
+ *
+ * The progress of a solve can be observed by a {@link ProgressListener},
+ * which is called between batches of pivots as well.
  *
  * @author mfj
  */
 public abstract class AbstractMCFSolver implements Runnable
 {
 
+    /**
+     * the default number of pivots between two checks of the budgets
+     */
+    public static final int DEFAULT_CHECK_INTERVAL = 1 << 10;
     private int minDelta;
+    // the change of the total cost per unit of flow sent around the cycle,
+    // which is the reduced cost of the entering edge in cycle orientation
+    private long cycleCost;
+    // the cost of the flow including the artificial edges, kept by the pivots
+    private long totalCost;
+    private long artificialCost;
     private Edge leaving;
     private SpanningTree.Branch branchOfLeavingEdge;
     private LinkedList<Edge> forwardEdges = new LinkedList<Edge>();
     private LinkedList<Edge> backwardEdges = new LinkedList<Edge>();
     private Graph graph;
     private SpanningTree spanningTree;
+    // the vertices connected by the entering edge in cycle orientation
+    private Vertex cycleLeft, cycleRight;
+    private Vertex lowerEntering;
+    // null if metrics are disabled
+    private SolverMetrics metrics;
+    private boolean initialized = false;
+    // the budgets, checked after each batch of checkInterval pivots
+    private long timeLimitNanos = Long.MAX_VALUE;
+    private long pivotLimit = Long.MAX_VALUE;
+    private CancelToken cancelToken;
+    private int checkInterval = DEFAULT_CHECK_INTERVAL;
+    private SolverResult result;
+    // null if progress is not reported
+    private ProgressListener progressListener;
+    private long progressPivots = Long.MAX_VALUE;
+    private long progressIntervalNanos = Long.MAX_VALUE;
 
     public AbstractMCFSolver(Graph graph, SpanningTree spanningTree)
     {
@@ -57,79 +101,538 @@ public abstract class AbstractMCFSolver implements Runnable
      */
     public abstract Edge getNextEntering();
 
+    /**
+     * Gets the graph of this solver.
+     */
+    protected Graph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Gets the spanning tree of this solver.
+     */
+    protected SpanningTree getSpanningTree()
+    {
+        return spanningTree;
+    }
+
     /**
      * Initializes the Spanningtree from the given vertices within the graph.
+     * Each edge of the graph is set to its lower capacity and each vertex is
+     * connected to the root by an artificial edge, which carries the netto
+     * balance of the vertex. Vertices without netto supply get an edge to the
+     * root, such that the initial tree is strongly feasible.
      */
     protected void initializeSpanningTree()
     {
         Collection<Edge> lowerBoundEdges = getLowerBoundEdges();
+        Iterator<Edge> edges = graph.edgeIterator();
+        while (edges.hasNext())
+        {
+            Edge e = edges.next();
+            e.flow = e.lowerCapacity;
+            lowerBoundEdges.add(e);
+        }
+
+        long artificialCost = getArtificialCost();
         Iterator<Vertex> iter = graph.vertexIterator();
         while (iter.hasNext())
         {
             Vertex v = iter.next();
-            if (v.nettoBalance() > 0)
+            int balance = v.nettoBalance();
+            if (balance >= 0)
+                spanningTree.addEdgeToRoot(balance, artificialCost, 0, Integer.MAX_VALUE, v);
+            else
+                spanningTree.addEdgeFromRoot(-balance, artificialCost, 0, Integer.MAX_VALUE, v);
+        }
+    }
+
+    /**
+     * Gets the cost of the artificial edges, which exceeds the cost of any
+     * simple path within the graph.
+     *
+     * @throws IllegalArgumentException if the reduced costs could exceed the
+     * long range
+     */
+    protected long getArtificialCost()
+    {
+        return artificialCost(graph.getNumberOfVertices(), graph.getMaxAbsoluteCost());
+    }
+
+    /**
+     * Computes the cost of the artificial edges {@code (n + 1) * (C + 1)},
+     * which exceeds the cost of any simple path. A potential is at most twice
+     * this cost, so a reduced cost is at most five times this cost.
+     *
+     * @param numberOfVertices the number of vertices n
+     * @param maxAbsoluteCost the maximum absolute cost C of all edges
+     * @return the cost of the artificial edges
+     * @throws IllegalArgumentException if the reduced costs could exceed the
+     * long range
+     */
+    protected static long artificialCost(long numberOfVertices, long maxAbsoluteCost)
+    {
+        long cost = (numberOfVertices + 1) * (maxAbsoluteCost + 1);
+        if (cost > Long.MAX_VALUE >> 3)
+            throw new IllegalArgumentException("The costs of " + numberOfVertices + " vertices with a maximum absolute cost of "
+                    + maxAbsoluteCost + " exceed the range of the potentials.");
+        return cost;
+    }
+
+    /**
+     * Tests if the flow found by this solver is feasible, which is the case if
+     * no artificial edge carries flow. Only valid after {@link #solve()}.
+     *
+     * @return true if the instance is feasible, false if it was rejected
+     * before the spanning tree was initialized
+     */
+    public boolean isFeasible()
+    {
+        return initialized && !spanningTree.hasRootFlow();
+    }
+
+    /**
+     * Gets the cost of the flow within the graph.
+     *
+     * @return sum of cost * flow over all edges of the graph
+     */
+    public long getObjective()
+    {
+        long objective = 0;
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+        {
+            Edge e = graph.edgeAt(i);
+            objective += e.cost * e.flow;
+        }
+        return objective;
+    }
+
+    /**
+     * Gets the lower bound on the optimal cost which is given by the current
+     * potentials, see {@link SolverResult}.
+     *
+     * @return the lower bound
+     */
+    public long getLowerBound()
+    {
+        long bound = 0;
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            Vertex v = vertices.next();
+            bound += (long) v.getBalance() * v.getPotential();
+        }
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+        {
+            Edge e = graph.edgeAt(i);
+            long reducedCost = e.cost - e.from.getPotential() + e.to.getPotential();
+            bound += reducedCost * (reducedCost > 0 ? e.lowerCapacity : e.upperCapacity);
+        }
+        return bound;
+    }
+
+    /**
+     * Sets the maximum time a single call of {@link #solve()} may take.
+     *
+     * @param time the time limit or a non positive value to remove the limit
+     * @param unit the unit of the time
+     */
+    public void setTimeLimit(long time, TimeUnit unit)
+    {
+        timeLimitNanos = time > 0 ? unit.toNanos(time) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the maximum number of pivots a single call of {@link #solve()} may
+     * perform.
+     *
+     * @param pivotLimit the pivot limit or a negative value to remove the limit
+     */
+    public void setPivotLimit(long pivotLimit)
+    {
+        this.pivotLimit = pivotLimit >= 0 ? pivotLimit : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the token which can be used to cancel a running solve.
+     *
+     * @param cancelToken the token or null
+     */
+    public void setCancelToken(CancelToken cancelToken)
+    {
+        this.cancelToken = cancelToken;
+    }
+
+    /**
+     * Sets the number of pivots between two checks of the time limit, the
+     * cancel token and the interrupt flag of the solving thread. Larger values
+     * reduce the overhead, smaller values make the solver stop sooner.
+     *
+     * @param checkInterval a positive number of pivots, by default
+     * {@value #DEFAULT_CHECK_INTERVAL}
+     */
+    public void setCheckInterval(int checkInterval)
+    {
+        if (checkInterval < 1)
+            throw new IllegalArgumentException();
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Sets the pool which shifts the potentials of large re-hung subtrees in
+     * parallel, see {@link SpanningTree#setParallelism(ForkJoinPool, int)}.
+     *
+     * @param pool the pool or null to update all subtrees serially
+     * @param threshold the number of vertices a subtree must exceed before
+     * its update is done in parallel
+     */
+    public void setParallelism(ForkJoinPool pool, int threshold)
+    {
+        spanningTree.setParallelism(pool, threshold);
+    }
+
+    /**
+     * Sets the listener which receives the progress of a solve. The listener
+     * is called after the batch of pivots during which the pivot or the time
+     * interval has passed, so the time interval is only kept to a precision
+     * of {@link #setCheckInterval(int)} pivots.
+     *
+     * @param listener the listener or null to disable progress reports
+     * @param pivots the number of pivots between two reports or a
+     * non-positive value to report by time only
+     * @param interval the time between two reports or a non-positive value
+     * to report by pivots only
+     * @param unit the unit of the time interval
+     */
+    public void setProgressListener(ProgressListener listener, long pivots, long interval, TimeUnit unit)
+    {
+        this.progressListener = listener;
+        this.progressPivots = pivots > 0 ? pivots : Long.MAX_VALUE;
+        this.progressIntervalNanos = interval > 0 ? unit.toNanos(interval) : Long.MAX_VALUE;
+    }
+
+    // the objective follows from the total cost kept by the pivots, without
+    // a pass over the edges
+    private void reportProgress(long pivots, long elapsedNanos, long previousPivots, long previousNanos,
+            SolverStatus status)
+    {
+        long nanos = elapsedNanos - previousNanos;
+        double rate = nanos > 0 ? (pivots - previousPivots) * 1e9 / nanos : 0;
+        long rootFlow = spanningTree.getRootFlow();
+        progressListener.progress(new Progress(pivots, elapsedNanos, totalCost - artificialCost * rootFlow,
+                rootFlow, rate, status));
+    }
+
+    /**
+     * Enables or disables the collection of metrics. Without metrics the
+     * pivot loop contains no instrumentation at all.
+     *
+     * @param metrics the metrics to update or null to disable them
+     */
+    public void setMetrics(SolverMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the metrics updated by this solver.
+     *
+     * @return the metrics or null if they are disabled
+     */
+    public SolverMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Runs the networksimplex algorithm, the result is available by
+     * {@link #getResult()}.
+     */
+    @Override
+    public void run()
+    {
+        solve();
+    }
+
+    /**
+     * Runs the networksimplex algorithm until the flow is optimal, the
+     * instance turns out to be infeasible, a limit is exceeded or the solve
+     * is cancelled.
+     *
+     * @return the result, which is also available by {@link #getResult()}
+     */
+    public SolverResult solve()
+    {
+        long start = System.nanoTime();
+        // initialize the spanning tree from the given graph
+        if (!initialized)
+        {
+            SolverStatus status = presolve();
+            if (status != null)
             {
-                // TODO implement this method
+                if (status == SolverStatus.Optimal)
+                    setInitialized();
+                result = new SolverResult(status, 0, initialized, getObjective(), getLowerBound());
+                return result;
             }
+            initialize();
+        }
+
+        SolverStatus status = null;
+        long pivots = 0;
+        // the pivots and the elapsed time of the previous progress report
+        long reportedPivots = 0, reportedNanos = 0;
+        while (status == null)
+        {
+            long remaining = pivotLimit - pivots;
+            if (progressListener != null)
+                remaining = Math.min(remaining, progressPivots - (pivots - reportedPivots));
+            int batch = (int) Math.min(checkInterval, remaining);
+            int performed = metrics == null ? pivot(batch) : pivotInstrumented(batch, metrics);
+            pivots += performed;
+
+            if (performed < batch && !nextCosts())
+                status = spanningTree.hasRootFlow() ? SolverStatus.Infeasible : SolverStatus.Optimal;
+            else if (pivots >= pivotLimit)
+                status = SolverStatus.PivotLimit;
+            else if ((cancelToken != null && cancelToken.isCancelled()) || Thread.currentThread().isInterrupted())
+                status = SolverStatus.Cancelled;
+            else if (System.nanoTime() - start > timeLimitNanos)
+                status = SolverStatus.TimeLimit;
             else
             {
-                // TODO implement this method
+                batchCompleted();
+                long elapsed = System.nanoTime() - start;
+                if (progressListener != null && (pivots - reportedPivots >= progressPivots
+                        || elapsed - reportedNanos >= progressIntervalNanos))
+                {
+                    reportProgress(pivots, elapsed, reportedPivots, reportedNanos, null);
+                    reportedPivots = pivots;
+                    reportedNanos = elapsed;
+                }
             }
         }
+        solveStopped(status);
+        if (progressListener != null)
+            reportProgress(pivots, System.nanoTime() - start, reportedPivots, reportedNanos, status);
+
+        result = new SolverResult(status, pivots, isFeasible(), getObjective(), getLowerBound());
+        return result;
     }
 
     /**
-     * Runs the networksimplex algorithm.
+     * Gets the result of the last solve.
+     *
+     * @return the result or null if the solver did not run yet
      */
-    @Override
-    public void run()
+    public SolverResult getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Initializes this solver without performing any pivot, such that
+     * {@link #pivot()} can be called step by step instead of {@link #solve()}.
+     */
+    public void initialize()
     {
-        // initialize the spanning tree from the given graph
         initializeSpanningTree();
+        setInitialized();
+    }
+
+    /**
+     * Tests if the spanning tree was initialized, so that the next solve
+     * continues from it.
+     */
+    protected boolean isInitialized()
+    {
+        return initialized;
+    }
+
+    /**
+     * Marks the spanning tree as initialized after a subclass has built it by
+     * other means than {@link #initialize()}, e.g. from a checkpoint.
+     */
+    protected void setInitialized()
+    {
+        initialized = true;
+        // the pivots keep the total cost from here on
+        artificialCost = getArtificialCost();
+        totalCost = getObjective() + artificialCost * spanningTree.getRootFlow();
+    }
+
+    /**
+     * Called by the first solve before the spanning tree is initialized. A
+     * subclass can solve or reject the instance here without pivoting.
+     *
+     * @return {@link SolverStatus#Optimal} if the instance was solved and the
+     * optimal tree is installed, {@link SolverStatus#Infeasible} if it was
+     * rejected, or null to initialize the tree and pivot
+     */
+    protected SolverStatus presolve()
+    {
+        return null;
+    }
+
+    /**
+     * Called when no edge can enter the tree. A subclass which solves
+     * approximate costs first installs the next costs here, together with the
+     * costs of the artificial edges and the potentials of the tree.
+     *
+     * @return true if other costs were installed and the solve continues,
+     * false if the costs are exact and the solve stops
+     */
+    protected boolean nextCosts()
+    {
+        return false;
+    }
+
+    /**
+     * Called after each batch of pivots if the solve continues.
+     */
+    protected void batchCompleted()
+    {
+    }
+
+    /**
+     * Called once a solve stops, before its result is built.
+     *
+     * @param status the status of the solve
+     */
+    protected void solveStopped(SolverStatus status)
+    {
+    }
+
+    // performs up to count pivots and returns the number of performed ones
+    private int pivot(int count)
+    {
+        for (int i = 0; i < count; i++)
+            if (!pivot())
+                return i;
+        return count;
+    }
+
+    /**
+     * Performs a single iteration of the networksimplex algorithm.
+     *
+     * @return false if no entering edge was found, meaning that the current
+     * flow is optimal
+     */
+    public boolean pivot()
+    {
+        Edge entering = getNextEntering();
+        if (entering == null)
+            return false;
+        pivot(entering);
+        return true;
+    }
+
+    /**
+     * Exchanges an edge which is not contained within the spanning tree with
+     * the blocking edge of the cycle it closes. The flow along the cycle is
+     * changed as much as possible, increased if the entering edge is at its
+     * lower bound or decreased if it is at its upper bound.
+     *
+     * @param entering an edge of the graph whose lower and upper capacity
+     * differ and which is not contained within the spanning tree
+     */
+    public void pivot(Edge entering)
+    {
+        identifyCycle(entering);
+        augment();
+        updateTree(entering);
+    }
 
-        Edge entering;
-        while ((entering = getNextEntering()) != null)
+    // pivot(int) which measures each phase
+    private int pivotInstrumented(int count, SolverMetrics m)
+    {
+        for (int i = 0; i < count; i++)
         {
-            reduceCosts(entering);
-            if (leaving.hasUpperBound())
-                getUpperBoundEdges().add(leaving);
-            else
-                getLowerBoundEdges().add(leaving);
+            long start = System.nanoTime();
+            Edge entering = getNextEntering();
+            long priced = System.nanoTime();
+            m.pricingNanos += priced - start;
+            if (entering == null)
+                return i;
+
+            identifyCycle(entering);
+            long identified = System.nanoTime();
+            augment();
+            long augmented = System.nanoTime();
+            int subtreeSize = updateTree(entering);
+            long updated = System.nanoTime();
+
+            m.cycleNanos += identified - priced;
+            m.augmentNanos += augmented - identified;
+            m.updateNanos += updated - augmented;
+            m.pivots++;
+            if (minDelta == 0)
+                m.degeneratePivots++;
+            m.cycleEdges += forwardEdges.size() + backwardEdges.size();
+            m.subtreeVertices += subtreeSize;
+            m.maxSubtreeSize = Math.max(m.maxSubtreeSize, subtreeSize);
         }
+        return count;
     }
 
-    private void reduceCosts(Edge entering)
+    /**
+     * Identifies the cycle which is closed by the entering edge, the maximum
+     * flow augmentation along it and the leaving edge.
+     */
+    private void identifyCycle(Edge entering)
     {
         forwardEdges.clear();
         backwardEdges.clear();
-        
-        if (entering.hasUpperBound())
+        leaving = entering;
+        branchOfLeavingEdge = SpanningTree.Branch.Undefined;
+
+        // the cycle is oriented in the direction the flow is changed
+        if (entering.hasLowerBound())
         {
             forwardEdges.add(entering);
+            cycleCost = entering.reducedCost();
             minDelta = entering.upperCapacity - entering.flow;
-            identifyCycle(entering.from, entering.to, SpanningTree.Branch.Left);
-            augment();
-            
-            if (branchOfLeavingEdge == SpanningTree.Branch.Left)
-                spanningTree.addEdge(entering, leaving, entering.to);
-            else
-                spanningTree.addEdge(entering, leaving, entering.from);
+            cycleLeft = entering.from;
+            cycleRight = entering.to;
         }
         else
         {
             backwardEdges.add(entering);
-            minDelta = entering.flow - entering.upperCapacity;
-            identifyCycle(entering.to, entering.from, SpanningTree.Branch.Right);
-            augment();
-            
-            if (branchOfLeavingEdge == SpanningTree.Branch.Left)
-                spanningTree.addEdge(entering, leaving, entering.from);
-            else
-                spanningTree.addEdge(entering, leaving, entering.to);
+            cycleCost = -entering.reducedCost();
+            minDelta = entering.flow - entering.lowerCapacity;
+            cycleLeft = entering.to;
+            cycleRight = entering.from;
         }
+        identifyCycle(cycleLeft, cycleRight);
+        lowerEntering = branchOfLeavingEdge == SpanningTree.Branch.Left ? cycleLeft : cycleRight;
     }
 
-    private void identifyCycle(Vertex left, Vertex right, SpanningTree.Branch preferedLeaving)
+    /**
+     * Exchanges the entering and the leaving edge within the spanning tree.
+     *
+     * @return the number of vertices within the re-hung subtree
+     */
+    private int updateTree(Edge entering)
+    {
+        if (!getLowerBoundEdges().remove(entering))
+            getUpperBoundEdges().remove(entering);
+        // the tree stays the same if the entering edge blocks the cycle itself
+        int subtreeSize = leaving == entering ? 0 : spanningTree.addEdge(entering, leaving, lowerEntering);
+        if (leaving.hasUpperBound())
+            getUpperBoundEdges().add(leaving);
+        else
+            getLowerBoundEdges().add(leaving);
+        return subtreeSize;
+    }
+
+    /**
+     * Traverses the tree path of the cycle. Among several blocking edges the
+     * last one is chosen if the cycle is traversed in orientation, starting at
+     * its root. This keeps the spanning tree strongly feasible and thereby
+     * prevents cycling on degenerate pivots.
+     */
+    private void identifyCycle(Vertex left, Vertex right)
     {
         SpanningTree.CycleIterator iter = spanningTree.CYCLE_ITERATOR_INSTANCE;
         iter.resetVertices(left, right);
@@ -141,19 +644,22 @@ public abstract class AbstractMCFSolver implements Runnable
             if (iter.isInOrientation())
             {
                 forwardEdges.add(e);
-                updateMinDelta(e.upperCapacity - e.flow, e, iter, preferedLeaving);
+                updateMinDelta(e.upperCapacity - e.flow, e, iter);
             }
             else
             {
                 backwardEdges.add(e);
-                updateMinDelta(e.flow - e.lowerCapacity, e, iter, preferedLeaving);
+                updateMinDelta(e.flow - e.lowerCapacity, e, iter);
             }
         }
     }
 
-    private void updateMinDelta(int delta, Edge e, CycleIterator iter, Branch preferedLeaving)
+    private void updateMinDelta(int delta, Edge e, CycleIterator iter)
     {
-        if (delta < minDelta || (delta == minDelta && iter.getCurrentBranch() == preferedLeaving))
+        // the left branch precedes the entering edge and is traversed against
+        // the orientation, the right branch follows it and is traversed in
+        // orientation, so only edges of the right branch win a tie
+        if (delta < minDelta || (delta == minDelta && iter.getCurrentBranch() == Branch.Right))
         {
             minDelta = delta;
             leaving = e;
@@ -163,10 +669,13 @@ public abstract class AbstractMCFSolver implements Runnable
 
     private void augment()
     {
+        if (minDelta == 0)
+            return;
+        totalCost += minDelta * cycleCost;
         for (Edge edge : forwardEdges)
-            edge.flow -= minDelta;
-        for (Edge edge : backwardEdges)
             edge.flow += minDelta;
+        for (Edge edge : backwardEdges)
+            edge.flow -= minDelta;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,520 @@
+package nwsimplex.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Solves assignment problems by the auction algorithm with epsilon scaling.
+ * An instance is an assignment problem if each vertex is either a person
+ * with balance 1 or an object with balance -1, there are as many persons as
+ * objects, and each edge leads from a person to an object with a lower
+ * capacity of zero and an upper capacity of at least one, see
+ * {@link #isAssignment(Graph)}.
+ *
+ * Persons bid for objects, whose benefit is the negated cost minus the price
+ * of the object. The costs are scaled by {@code n + 1}, so the assignment is
+ * optimal once each person is assigned within one unit of its best object.
+ * The bids of all unassigned persons are computed in parallel against the
+ * same prices (Jacobi bidding) and then resolved, each object goes to its
+ * highest bidder. Prices, bids and assignments are kept in primitive arrays
+ * indexed by persons, objects and the edges of a person.
+ *
+ * The auction does not terminate on infeasible instances, so a maximum
+ * cardinality matching is computed first, which must be perfect.
+ *
+ * Like the network simplex solvers, a solve can be limited in time and in the
+ * number of bids, and be cancelled by a {@link CancelToken} or by interrupting
+ * the solving thread. These are checked between two bidding rounds. A solve
+ * which stops early leaves the partial assignment of the current scaling
+ * phase within the graph, with a lower bound derived from the prices.
+ *
+ * @author mfj
+ */
+public class AuctionSolver implements Runnable
+{
+
+    // number of bids computed by a single task
+    private static final int THRESHOLD = 1 << 11;
+    // the factor by which epsilon decreases between two phases
+    private static final int EPSILON_FACTOR = 5;
+    // the pool shared by all solvers which were not given a pool
+    private static ForkJoinPool defaultPool;
+    private final Graph graph;
+    private final ForkJoinPool pool;
+    private final int n;
+    // the edges of person i are first[i] to first[i + 1] - 1
+    private final int[] first, object, edgeIndex;
+    private final long[] benefit;
+    private final long[] price;
+    // the edge each person is assigned by, and the owner of each object
+    private final int[] assigned, owner;
+    private long maxBenefit, benefitRange;
+    private long bids;
+    private long timeLimitNanos = Long.MAX_VALUE;
+    private long pivotLimit = Long.MAX_VALUE;
+    private CancelToken cancelToken;
+    private SolverResult result;
+
+    /**
+     * Instantiates a solver which bids on all available processors.
+     *
+     * @param graph an assignment problem
+     * @throws IllegalArgumentException if the graph is not an assignment
+     * problem
+     */
+    public AuctionSolver(Graph graph)
+    {
+        this(graph, getDefaultPool());
+    }
+
+    /**
+     * @param graph an assignment problem
+     * @param pool the pool which computes the bids
+     * @throws IllegalArgumentException if the graph is not an assignment
+     * problem
+     */
+    public AuctionSolver(Graph graph, ForkJoinPool pool)
+    {
+        if (!isAssignment(graph))
+            throw new IllegalArgumentException("The graph is not an assignment problem.");
+        this.graph = graph;
+        this.pool = pool;
+        this.n = graph.getNumberOfVertices() / 2;
+
+        // number persons and objects by the order of their id's
+        int[] index = new int[graph.getVertexDomainSize()];
+        int persons = 0, objects = 0;
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            Vertex v = vertices.next();
+            index[v.ID] = v.getBalance() > 0 ? persons++ : objects++;
+        }
+
+        int m = graph.getNumberOfEdges();
+        first = new int[n + 1];
+        object = new int[m];
+        edgeIndex = new int[m];
+        benefit = new long[m];
+        for (int i = 0; i < m; i++)
+            first[index[graph.edgeAt(i).from.ID] + 1]++;
+        for (int p = 0; p < n; p++)
+            first[p + 1] += first[p];
+        int[] fill = Arrays.copyOf(first, n);
+        long scale = n + 1L;
+        for (int i = 0; i < m; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            int k = fill[index[e.from.ID]]++;
+            object[k] = index[e.to.ID];
+            edgeIndex[k] = i;
+            benefit[k] = -e.cost * scale;
+        }
+
+        price = new long[n];
+        assigned = new int[n];
+        owner = new int[n];
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool()
+    {
+        if (defaultPool == null)
+            defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    /**
+     * Tests if a graph is an assignment problem which this solver can solve.
+     * Besides the shape of the instance, the costs must be small enough that
+     * the prices cannot overflow, that is {@code n * (n + 1) * maxCost} must
+     * be below {@code 2^61}.
+     *
+     * @param graph the graph
+     * @return true if the graph is an assignment problem
+     */
+    public static boolean isAssignment(Graph graph)
+    {
+        int persons = 0, objects = 0;
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            int balance = vertices.next().getBalance();
+            if (balance == 1)
+                persons++;
+            else if (balance == -1)
+                objects++;
+            else
+                return false;
+        }
+        if (persons != objects)
+            return false;
+
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+        {
+            Edge e = graph.edgeAt(i);
+            if (e.from.getBalance() != 1 || e.to.getBalance() != -1 || e.lowerCapacity != 0 || e.upperCapacity < 1)
+                return false;
+        }
+        double bound = (double) persons * (persons + 1) * graph.getMaxAbsoluteCost();
+        return bound < (double) (1L << 61);
+    }
+
+    /**
+     * Sets the maximum time a single call of {@link #solve()} may take.
+     *
+     * @param time the time limit or a non positive value to remove the limit
+     * @param unit the unit of the time
+     */
+    public void setTimeLimit(long time, TimeUnit unit)
+    {
+        timeLimitNanos = time > 0 ? unit.toNanos(time) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the maximum number of bids a single call of {@link #solve()} may
+     * place. Since the bids of a round are placed together, a solve may
+     * exceed the limit by the bids of its last round.
+     *
+     * @param pivotLimit the bid limit or a negative value to remove the limit
+     */
+    public void setPivotLimit(long pivotLimit)
+    {
+        this.pivotLimit = pivotLimit >= 0 ? pivotLimit : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the token which can be used to cancel a running solve.
+     *
+     * @param cancelToken the token or null
+     */
+    public void setCancelToken(CancelToken cancelToken)
+    {
+        this.cancelToken = cancelToken;
+    }
+
+    @Override
+    public void run()
+    {
+        solve();
+    }
+
+    /**
+     * Gets the result of the last solve.
+     *
+     * @return the result or null if the solver never ran
+     */
+    public SolverResult getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Solves the assignment problem and stores the flow within the edges of
+     * the graph. The pivot count of the result is the number of bids.
+     *
+     * @return the result
+     */
+    public SolverResult solve()
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+            graph.edgeAt(i).flow = 0;
+        bids = 0;
+        if (!hasPerfectMatching())
+        {
+            result = new SolverResult(SolverStatus.Infeasible, 0, false, 0, 0);
+            return result;
+        }
+
+        maxBenefit = Long.MIN_VALUE;
+        long minBenefit = Long.MAX_VALUE;
+        for (long b : benefit)
+        {
+            maxBenefit = Math.max(maxBenefit, b);
+            minBenefit = Math.min(minBenefit, b);
+        }
+        benefitRange = n == 0 ? 0 : maxBenefit - minBenefit;
+
+        Arrays.fill(price, 0);
+        SolverStatus status = null;
+        long epsilon = Math.max(1, benefitRange / EPSILON_FACTOR);
+        while (status == null)
+        {
+            status = auction(epsilon, start);
+            if (status == null && epsilon == 1)
+                status = SolverStatus.Optimal;
+            epsilon = Math.max(1, epsilon / EPSILON_FACTOR);
+        }
+
+        long objective = 0;
+        for (int p = 0; p < n; p++)
+        {
+            if (assigned[p] < 0)
+                continue;
+            Edge e = graph.edgeAt(edgeIndex[assigned[p]]);
+            e.flow = 1;
+            objective += e.cost;
+        }
+        boolean optimal = status == SolverStatus.Optimal;
+        result = new SolverResult(status, bids, optimal, objective, optimal ? objective : getLowerBound());
+        return result;
+    }
+
+    /*
+     * The prices are potentials of the objects, so every assignment costs at
+     * least the sum of the cheapest edge of each person including the price of
+     * its object, minus the sum of the prices. The sums are scaled, so the
+     * bound is rounded up.
+     */
+    private long getLowerBound()
+    {
+        long scale = n + 1L, bound = 0;
+        for (int p = 0; p < n; p++)
+        {
+            long cheapest = Long.MAX_VALUE;
+            for (int e = first[p]; e < first[p + 1]; e++)
+                cheapest = Math.min(cheapest, price[object[e]] - benefit[e]);
+            // the objects are numbered like the persons
+            bound += cheapest - price[p];
+        }
+        return bound / scale + (bound % scale > 0 ? 1 : 0);
+    }
+
+    // the reason to stop a scaling phase before the next round, null to go on
+    private SolverStatus checkLimits(long start)
+    {
+        if (bids >= pivotLimit)
+            return SolverStatus.PivotLimit;
+        if ((cancelToken != null && cancelToken.isCancelled()) || Thread.currentThread().isInterrupted())
+            return SolverStatus.Cancelled;
+        if (System.nanoTime() - start > timeLimitNanos)
+            return SolverStatus.TimeLimit;
+        return null;
+    }
+
+    // a scaling phase, which assigns all persons starting from the current
+    // prices, returns the reason if it stopped before
+    private SolverStatus auction(long epsilon, long start)
+    {
+        Arrays.fill(assigned, -1);
+        Arrays.fill(owner, -1);
+        int[] unassigned = new int[n], next = new int[n];
+        for (int p = 0; p < n; p++)
+            unassigned[p] = p;
+        int[] bidEdge = new int[n];
+        long[] bidPrice = new long[n];
+        // the highest bid of each object within the current round
+        long[] highest = new long[n];
+        int[] winner = new int[n], touched = new int[n];
+        Arrays.fill(winner, -1);
+
+        int count = n;
+        while (count > 0)
+        {
+            SolverStatus status = checkLimits(start);
+            if (status != null)
+                return status;
+            if (count > THRESHOLD)
+                pool.invoke(new BidTask(unassigned, 0, count, epsilon, bidEdge, bidPrice));
+            else
+                bid(unassigned, 0, count, epsilon, bidEdge, bidPrice);
+            bids += count;
+
+            int objects = 0;
+            for (int k = 0; k < count; k++)
+            {
+                int j = object[bidEdge[k]];
+                if (winner[j] < 0)
+                {
+                    touched[objects++] = j;
+                    winner[j] = k;
+                    highest[j] = bidPrice[k];
+                }
+                else if (bidPrice[k] > highest[j])
+                {
+                    winner[j] = k;
+                    highest[j] = bidPrice[k];
+                }
+            }
+
+            // the losing bidders and the previous owners bid again
+            int nextCount = 0;
+            for (int k = 0; k < count; k++)
+            {
+                int j = object[bidEdge[k]];
+                if (winner[j] != k)
+                    next[nextCount++] = unassigned[k];
+            }
+            for (int t = 0; t < objects; t++)
+            {
+                int j = touched[t], k = winner[j], p = unassigned[k];
+                if (owner[j] >= 0)
+                {
+                    assigned[owner[j]] = -1;
+                    next[nextCount++] = owner[j];
+                }
+                owner[j] = p;
+                assigned[p] = bidEdge[k];
+                price[j] = highest[j];
+                winner[j] = -1;
+            }
+
+            int[] swap = unassigned;
+            unassigned = next;
+            next = swap;
+            count = nextCount;
+        }
+        return null;
+    }
+
+    // computes the bids of the persons unassigned[begin] to
+    // unassigned[end - 1], the prices are not changed
+    private void bid(int[] unassigned, int begin, int end, long epsilon, int[] bidEdge, long[] bidPrice)
+    {
+        for (int k = begin; k < end; k++)
+        {
+            int p = unassigned[k];
+            long best = Long.MIN_VALUE, second = Long.MIN_VALUE;
+            int bestEdge = -1;
+            for (int e = first[p]; e < first[p + 1]; e++)
+            {
+                long value = benefit[e] - price[object[e]];
+                if (value > best)
+                {
+                    second = best;
+                    best = value;
+                    bestEdge = e;
+                }
+                else if (value > second)
+                    second = value;
+            }
+            // a person with a single edge raises the price by more than any
+            // other person could gain from the object
+            if (second == Long.MIN_VALUE)
+                second = best - benefitRange;
+            bidEdge[k] = bestEdge;
+            bidPrice[k] = price[object[bestEdge]] + best - second + epsilon;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class BidTask extends RecursiveAction
+    {
+
+        private final int[] unassigned, bidEdge;
+        private final long[] bidPrice;
+        private final int begin, end;
+        private final long epsilon;
+
+        BidTask(int[] unassigned, int begin, int end, long epsilon, int[] bidEdge, long[] bidPrice)
+        {
+            this.unassigned = unassigned;
+            this.begin = begin;
+            this.end = end;
+            this.epsilon = epsilon;
+            this.bidEdge = bidEdge;
+            this.bidPrice = bidPrice;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (end - begin > THRESHOLD)
+            {
+                int middle = (begin + end) >>> 1;
+                BidTask left = new BidTask(unassigned, begin, middle, epsilon, bidEdge, bidPrice);
+                left.fork();
+                new BidTask(unassigned, middle, end, epsilon, bidEdge, bidPrice).compute();
+                left.join();
+            }
+            else
+                bid(unassigned, begin, end, epsilon, bidEdge, bidPrice);
+        }
+    }
+
+    /**
+     * Tests if every person can be assigned, by the Hopcroft-Karp algorithm.
+     */
+    private boolean hasPerfectMatching()
+    {
+        int[] mate = new int[n], personOf = new int[n], dist = new int[n];
+        int[] queue = new int[n], stack = new int[n], current = new int[n];
+        Arrays.fill(mate, -1);
+        Arrays.fill(personOf, -1);
+        int matched = 0;
+        while (true)
+        {
+            // layers of alternating paths from the free persons
+            int head = 0, tail = 0;
+            boolean found = false;
+            for (int p = 0; p < n; p++)
+                if (mate[p] < 0)
+                {
+                    dist[p] = 0;
+                    queue[tail++] = p;
+                }
+                else
+                    dist[p] = Integer.MAX_VALUE;
+            while (head < tail)
+            {
+                int p = queue[head++];
+                for (int e = first[p]; e < first[p + 1]; e++)
+                {
+                    int q = personOf[object[e]];
+                    if (q < 0)
+                        found = true;
+                    else if (dist[q] == Integer.MAX_VALUE)
+                    {
+                        dist[q] = dist[p] + 1;
+                        queue[tail++] = q;
+                    }
+                }
+            }
+            if (!found)
+                return matched == n;
+
+            // vertex disjoint shortest augmenting paths by depth first search
+            for (int p = 0; p < n; p++)
+                current[p] = first[p];
+            for (int root = 0; root < n; root++)
+            {
+                if (mate[root] >= 0)
+                    continue;
+                int top = 0;
+                stack[0] = root;
+                while (top >= 0)
+                {
+                    int p = stack[top];
+                    if (current[p] == first[p + 1])
+                    {
+                        dist[p] = Integer.MAX_VALUE;
+                        top--;
+                        continue;
+                    }
+                    int q = personOf[object[current[p]]];
+                    if (q < 0)
+                    {
+                        for (int t = top; t >= 0; t--)
+                        {
+                            int r = stack[t], j = object[current[r]];
+                            mate[r] = j;
+                            personOf[j] = r;
+                        }
+                        matched++;
+                        break;
+                    }
+                    if (dist[q] == dist[p] + 1)
+                        stack[++top] = q;
+                    else
+                        current[p]++;
+                }
+            }
+        }
+    }
+}
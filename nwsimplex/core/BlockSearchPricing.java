@@ -0,0 +1,91 @@
+package nwsimplex.core;
+
+/**
+ * The block search pricing rule over column wise stored edges. The edges are
+ * divided into blocks, which are searched cyclically starting with the block
+ * after the last entering edge. The most violating edge of the first block
+ * that contains a violating edge is chosen to enter the spanning tree.
+ *
+ * The arrays are referenced, not copied, so changes of potentials and states
+ * made by the solver are seen by the next call of {@link #nextEntering()}.
+ *
+ * @author mfj
+ */
+public class BlockSearchPricing
+{
+
+    private final int[] cost, from, to, state;
+    private final long[] potential;
+    private final int numberOfEdges;
+    private final int blockSize;
+    private final PricingKernel kernel;
+    // the first edge of the next block to search
+    private int next = 0;
+
+    /**
+     * Instantiates a new block search with a block size of
+     * {@code sqrt(numberOfEdges)} and the fastest available kernel.
+     *
+     * @param cost the edge costs
+     * @param from the origin vertex of each edge
+     * @param to the target vertex of each edge
+     * @param state the state of each edge
+     * @param potential the vertex potentials, indexed by the vertex id
+     * @param numberOfEdges the number of edges stored within the arrays
+     */
+    public BlockSearchPricing(int[] cost, int[] from, int[] to, int[] state, long[] potential, int numberOfEdges)
+    {
+        this(cost, from, to, state, potential, numberOfEdges,
+                Math.max(1, (int) Math.sqrt(numberOfEdges)), PricingKernel.getInstance());
+    }
+
+    /**
+     * Instantiates a new block search.
+     *
+     * @param cost the edge costs
+     * @param from the origin vertex of each edge
+     * @param to the target vertex of each edge
+     * @param state the state of each edge
+     * @param potential the vertex potentials, indexed by the vertex id
+     * @param numberOfEdges the number of edges stored within the arrays
+     * @param blockSize the number of edges within a block
+     * @param kernel the kernel which searches a single block
+     */
+    public BlockSearchPricing(int[] cost, int[] from, int[] to, int[] state, long[] potential, int numberOfEdges,
+            int blockSize, PricingKernel kernel)
+    {
+        if (blockSize < 1)
+            throw new IllegalArgumentException();
+        this.cost = cost;
+        this.from = from;
+        this.to = to;
+        this.state = state;
+        this.potential = potential;
+        this.numberOfEdges = numberOfEdges;
+        this.blockSize = blockSize;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Gets the next entering edge.
+     *
+     * @return the index of the entering edge or -1 if no edge violates the
+     * optimality condition
+     */
+    public int nextEntering()
+    {
+        int searched = 0;
+        while (searched < numberOfEdges)
+        {
+            if (next >= numberOfEdges)
+                next = 0;
+            int end = Math.min(numberOfEdges, next + blockSize);
+            int entering = kernel.findMostViolating(cost, from, to, state, potential, next, end);
+            searched += end - next;
+            next = end;
+            if (entering >= 0)
+                return entering;
+        }
+        return -1;
+    }
+}
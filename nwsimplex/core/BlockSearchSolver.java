@@ -0,0 +1,205 @@
+package nwsimplex.core;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.SpanningTree;
+
+/**
+ * A network simplex solver which uses the block search pricing rule. The edges
+ * of the graph are divided into blocks, which are searched cyclically, and the
+ * most violating edge of the first block that contains a violating edge
+ * enters the spanning tree.
+ *
+ * The cost, end points and state of each edge, see {@link PricingKernel}, are
+ * stored within arrays indexed by the position of the edge within the graph,
+ * and the spanning tree mirrors the potentials into an array, so the blocks
+ * are searched by a {@link BlockSearchPricing} with the fastest available
+ * kernel. Therefore the graph must not be modified while it is solved. Edges
+ * whose lower and upper capacity are equal never enter the tree.
+ *
+ * @author mfj
+ */
+public class BlockSearchSolver extends AbstractGraphSolver
+{
+
+    private final Graph graph;
+    private final int[] state, cost;
+    private final int numberOfEdges;
+    private final BlockSearchPricing pricing;
+    private final Collection<Edge> lowerBoundEdges, upperBoundEdges;
+
+    /**
+     * Instantiates a new solver with a block size of
+     * {@code sqrt(numberOfEdges)}.
+     *
+     * @param graph the graph to solve
+     */
+    public BlockSearchSolver(Graph graph)
+    {
+        this(graph, Math.max(1, (int) Math.sqrt(graph.getNumberOfEdges())));
+    }
+
+    /**
+     * Instantiates a new solver.
+     *
+     * @param graph the graph to solve
+     * @param blockSize the number of edges within a block
+     */
+    public BlockSearchSolver(Graph graph, int blockSize)
+    {
+        super(graph, new SpanningTree());
+        if (blockSize < 1)
+            throw new IllegalArgumentException();
+        this.graph = graph;
+        this.numberOfEdges = graph.getNumberOfEdges();
+        this.state = new int[numberOfEdges];
+
+        this.cost = new int[numberOfEdges];
+        int[] from = new int[numberOfEdges], to = new int[numberOfEdges];
+        for (int i = 0; i < numberOfEdges; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            // the edges of a graph have int costs
+            cost[i] = (int) e.cost;
+            from[i] = e.from.ID;
+            to[i] = e.to.ID;
+        }
+        long[] potential = new long[graph.getVertexDomainSize()];
+        getSpanningTree().setPotentialMirror(potential);
+        this.pricing = new BlockSearchPricing(cost, from, to, state, potential, numberOfEdges, blockSize,
+                PricingKernel.getInstance());
+        this.lowerBoundEdges = new BoundEdges(PricingKernel.STATE_LOWER);
+        this.upperBoundEdges = new BoundEdges(PricingKernel.STATE_UPPER);
+    }
+
+    @Override
+    public Collection<Edge> getLowerBoundEdges()
+    {
+        return lowerBoundEdges;
+    }
+
+    @Override
+    public Collection<Edge> getUpperBoundEdges()
+    {
+        return upperBoundEdges;
+    }
+
+    /**
+     * Copies the costs of the current cost stage into the cost array.
+     */
+    @Override
+    protected void costsChanged()
+    {
+        // the costs of all stages fit into an int
+        for (int i = 0; i < numberOfEdges; i++)
+            cost[i] = (int) graph.edgeAt(i).cost;
+    }
+
+    @Override
+    public Edge getNextEntering()
+    {
+        int entering = pricing.nextEntering();
+        return entering < 0 ? null : graph.edgeAt(entering);
+    }
+
+    /**
+     * The edges of the graph which have a certain state, backed by the state
+     * array. Artificial edges, which are not contained within the graph, are
+     * not stored.
+     */
+    private class BoundEdges extends AbstractCollection<Edge>
+    {
+
+        private final int bound;
+        private int size = 0;
+
+        BoundEdges(int bound)
+        {
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean add(Edge e)
+        {
+            int i = e.getIndex();
+            if (i < 0 || state[i] == bound)
+                return false;
+            // fixed edges are never priced
+            if (e.lowerCapacity == e.upperCapacity)
+            {
+                state[i] = PricingKernel.STATE_TREE;
+                return false;
+            }
+            state[i] = bound;
+            size++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            if (!contains(o))
+                return false;
+            state[((Edge) o).getIndex()] = PricingKernel.STATE_TREE;
+            size--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            if (!(o instanceof Edge))
+                return false;
+            int i = ((Edge) o).getIndex();
+            return i >= 0 && i < numberOfEdges && state[i] == bound && graph.edgeAt(i) == o;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public Iterator<Edge> iterator()
+        {
+            return new Iterator<Edge>()
+            {
+                private int i = advance(0);
+
+                private int advance(int from)
+                {
+                    while (from < numberOfEdges && state[from] != bound)
+                        from++;
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return i < numberOfEdges;
+                }
+
+                @Override
+                public Edge next()
+                {
+                    if (i >= numberOfEdges)
+                        throw new NoSuchElementException();
+                    Edge e = graph.edgeAt(i);
+                    i = advance(i + 1);
+                    return e;
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException("Not supported.");
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package nwsimplex.core;
+
+/**
+ * A token which can be used to stop a running solver from another thread. The
+ * solver checks the token after each batch of pivots, see
+ * {@link AbstractMCFSolver#setCheckInterval(int)}.
+ *
+ * @author mfj
+ */
+public class CancelToken
+{
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests the solvers which use this token to stop.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Tests if the solvers which use this token were requested to stop.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
@@ -0,0 +1,322 @@
+package nwsimplex.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Verifies a solution, given by the flows and potentials stored within a
+ * graph, without solving the instance again. The flow is feasible if
+ * <ul>
+ * <li>{@code lowerCapacity <= flow <= upperCapacity} for each edge and</li>
+ * <li>{@code f(d+) - f(d-) = balance} for each vertex,</li>
+ * </ul>
+ * and the potentials certify its optimality if each edge with positive reduced
+ * cost is at its lower bound and each edge with negative reduced cost is at
+ * its upper bound (complementary slackness).
+ *
+ * All conditions are checked within a single pass over the edges and the
+ * vertices, which is split into ranges that are checked in parallel.
+ *
+ * @author mfj
+ */
+public class CertificateChecker
+{
+
+    /**
+     * default number of reported violations
+     */
+    public static final int DEFAULT_MAX_VIOLATIONS = 16;
+    // number of edges or vertices checked by a single task
+    private static final int THRESHOLD = 1 << 13;
+    // the pool shared by all checkers which were not given a pool
+    private static ForkJoinPool defaultPool;
+    private final ForkJoinPool pool;
+    private final int maxViolations;
+
+    /**
+     * Instantiates a checker which uses all available processors.
+     */
+    public CertificateChecker()
+    {
+        this(getDefaultPool(), DEFAULT_MAX_VIOLATIONS);
+    }
+
+    /**
+     * @param pool the pool which executes the checks
+     * @param maxViolations the maximum number of reported violations
+     */
+    public CertificateChecker(ForkJoinPool pool, int maxViolations)
+    {
+        this.pool = pool;
+        this.maxViolations = maxViolations;
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool()
+    {
+        if (defaultPool == null)
+            defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    /**
+     * Checks the flows and potentials stored within the specified graph.
+     *
+     * @param graph the graph, which must not be modified during the check
+     * @return the result of the check
+     */
+    public Result check(Graph graph)
+    {
+        // both checks are independent, so they share the pool
+        EdgeTask edges = new EdgeTask(graph, 0, graph.getNumberOfEdges());
+        VertexTask vertices = new VertexTask(graph, 0, graph.getVertexDomainSize());
+        pool.execute(edges);
+        pool.execute(vertices);
+        return edges.join().merge(vertices.join(), maxViolations);
+    }
+
+    /**
+     * The kind of a violated condition.
+     */
+    public enum Kind
+    {
+
+        /**
+         * the flow of an edge is below its lower capacity
+         */
+        LowerBound,
+        /**
+         * the flow of an edge is above its upper capacity
+         */
+        UpperBound,
+        /**
+         * the net outflow of a vertex differs from its balance
+         */
+        Conservation,
+        /**
+         * an edge has nonzero reduced cost but is not at the corresponding
+         * bound
+         */
+        ComplementarySlackness
+    }
+
+    /**
+     * A single violated condition.
+     */
+    public static class Violation implements Comparable<Violation>
+    {
+
+        /**
+         * the violated condition
+         */
+        public final Kind kind;
+        /**
+         * the handle of the edge or the id of the vertex
+         */
+        public final int id;
+        /**
+         * the value that violates the condition: the flow of an edge, the net
+         * outflow of a vertex or the reduced cost of an edge
+         */
+        public final long value;
+
+        Violation(Kind kind, int id, long value)
+        {
+            this.kind = kind;
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Violation o)
+        {
+            int c = kind.compareTo(o.kind);
+            return c != 0 ? c : Integer.compare(id, o.id);
+        }
+
+        @Override
+        public String toString()
+        {
+            return kind + (kind == Kind.Conservation ? " at vertex " : " at edge ") + id + ": " + value;
+        }
+    }
+
+    /**
+     * The result of a check.
+     */
+    public static class Result
+    {
+
+        private long objective;
+        private long numberOfInfeasibilities;
+        private long numberOfNonOptimalities;
+        private List<Violation> violations = new ArrayList<>();
+
+        /**
+         * Gets the objective value of the flow.
+         *
+         * @return sum of cost * flow
+         */
+        public long getObjective()
+        {
+            return objective;
+        }
+
+        /**
+         * Tests if the flow satisfies all bounds and the flow conservation.
+         */
+        public boolean isFeasible()
+        {
+            return numberOfInfeasibilities == 0;
+        }
+
+        /**
+         * Tests if the flow is feasible and the potentials prove its
+         * optimality.
+         */
+        public boolean isOptimal()
+        {
+            return isFeasible() && numberOfNonOptimalities == 0;
+        }
+
+        /**
+         * Gets the total number of violated conditions.
+         */
+        public long getNumberOfViolations()
+        {
+            return numberOfInfeasibilities + numberOfNonOptimalities;
+        }
+
+        /**
+         * Gets the first violations, ordered by their kind and id.
+         */
+        public List<Violation> getViolations()
+        {
+            return Collections.unmodifiableList(violations);
+        }
+
+        void add(Violation violation, int maxViolations)
+        {
+            if (violation.kind == Kind.ComplementarySlackness)
+                numberOfNonOptimalities++;
+            else
+                numberOfInfeasibilities++;
+            // positions are checked in ascending order, so the first ones are kept
+            if (violations.size() < maxViolations)
+                violations.add(violation);
+        }
+
+        Result merge(Result other, int maxViolations)
+        {
+            Result merged = new Result();
+            merged.objective = objective + other.objective;
+            merged.numberOfInfeasibilities = numberOfInfeasibilities + other.numberOfInfeasibilities;
+            merged.numberOfNonOptimalities = numberOfNonOptimalities + other.numberOfNonOptimalities;
+            merged.violations.addAll(violations);
+            merged.violations.addAll(other.violations);
+            Collections.sort(merged.violations);
+            if (merged.violations.size() > maxViolations)
+                merged.violations = new ArrayList<>(merged.violations.subList(0, maxViolations));
+            return merged;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "objective=" + objective + ", feasible=" + isFeasible() + ", optimal=" + isOptimal()
+                    + ", violations=" + getNumberOfViolations() + " " + violations;
+        }
+    }
+
+    // checks bounds and complementary slackness of a range of edges
+    @SuppressWarnings("serial")
+    private class EdgeTask extends RecursiveTask<Result>
+    {
+
+        private final Graph graph;
+        private final int begin, end;
+
+        EdgeTask(Graph graph, int begin, int end)
+        {
+            this.graph = graph;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected Result compute()
+        {
+            if (end - begin > THRESHOLD)
+            {
+                int middle = (begin + end) >>> 1;
+                EdgeTask left = new EdgeTask(graph, begin, middle);
+                left.fork();
+                Result right = new EdgeTask(graph, middle, end).compute();
+                return left.join().merge(right, maxViolations);
+            }
+
+            Result result = new Result();
+            for (int i = begin; i < end; i++)
+            {
+                Edge e = graph.edgeAt(i);
+                result.objective += e.cost * e.flow;
+
+                if (e.flow < e.lowerCapacity)
+                    result.add(new Violation(Kind.LowerBound, e.getId(), e.flow), maxViolations);
+                else if (e.flow > e.upperCapacity)
+                    result.add(new Violation(Kind.UpperBound, e.getId(), e.flow), maxViolations);
+
+                long reducedCost = e.cost - e.from.getPotential() + e.to.getPotential();
+                if ((reducedCost > 0 && e.flow != e.lowerCapacity) || (reducedCost < 0 && e.flow != e.upperCapacity))
+                    result.add(new Violation(Kind.ComplementarySlackness, e.getId(), reducedCost), maxViolations);
+            }
+            return result;
+        }
+    }
+
+    // checks the flow conservation of a range of vertex id's
+    @SuppressWarnings("serial")
+    private class VertexTask extends RecursiveTask<Result>
+    {
+
+        private final Graph graph;
+        private final int begin, end;
+
+        VertexTask(Graph graph, int begin, int end)
+        {
+            this.graph = graph;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected Result compute()
+        {
+            if (end - begin > THRESHOLD)
+            {
+                int middle = (begin + end) >>> 1;
+                VertexTask left = new VertexTask(graph, begin, middle);
+                left.fork();
+                Result right = new VertexTask(graph, middle, end).compute();
+                return left.join().merge(right, maxViolations);
+            }
+
+            Result result = new Result();
+            for (int id = begin; id < end; id++)
+            {
+                Vertex v = graph.getVertex(id);
+                if (v == null || !v.isActive())
+                    continue;
+                long netOutflow = v.netOutflow();
+                if (netOutflow != v.getBalance())
+                    result.add(new Violation(Kind.Conservation, id, netOutflow), maxViolations);
+            }
+            return result;
+        }
+    }
+}
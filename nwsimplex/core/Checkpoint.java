@@ -0,0 +1,370 @@
+package nwsimplex.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import nwsimplex.IO.read.FileFormatException;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Reads and writes the basis of a solver in a compact binary format. The
+ * basis consists of the flow of each edge and the tree edge, the flow of the
+ * artificial edge and the potential of each vertex. The state of an edge
+ * outside the tree follows from its flow. All values are little endian.
+ *
+ * <pre>
+ * int  magic               'MCFK'
+ * int  version
+ * int  numberOfEdges       m
+ * int  vertexDomainSize    n
+ * long artificialCost      cost of the artificial edges
+ * long fingerprint         of the graph, to reject checkpoints of other graphs
+ * int  flow[m]             aligned with the edge indices
+ * int  treeEdge[n]         index of the tree edge, TO_ROOT, FROM_ROOT or NONE
+ * int  rootFlow[n]         flow of the artificial edge, if any
+ * long potential[n]
+ * </pre>
+ *
+ * A checkpoint is written to a temporary file which then replaces the
+ * previous checkpoint, so a crash while writing never destroys the last
+ * complete checkpoint.
+ *
+ * @author mfj
+ */
+public class Checkpoint
+{
+
+    /**
+     * the first int of every checkpoint file
+     */
+    public static final int MAGIC = 0x4B46434D;
+    /**
+     * the version of the format
+     */
+    public static final int VERSION = 3;
+    /**
+     * the size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 32;
+    /**
+     * the byte order of all values
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * tree edge codes of vertices connected to the root by an artificial
+     * edge, and of vertex id's which are not contained within the tree
+     */
+    public static final int TO_ROOT = -1, FROM_ROOT = -2, NONE = -3;
+    // size of the staging buffer in bytes
+    private static final int BUFFER_SIZE = 1 << 20;
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    /**
+     * Writes the basis.
+     *
+     * @param path the checkpoint file
+     * @param graph the graph
+     * @param tree the spanning tree over the vertices of the graph
+     * @param artificialCost the cost of the artificial edges
+     * @param fingerprint the fingerprint of the graph
+     * @throws IOException
+     */
+    void write(Path path, Graph graph, SpanningTree tree, long artificialCost, long fingerprint) throws IOException
+    {
+        int m = graph.getNumberOfEdges(), n = graph.getVertexDomainSize();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try
+        {
+            if (buffer == null)
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+            buffer.clear();
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(m);
+            buffer.putInt(n);
+            buffer.putLong(artificialCost);
+            buffer.putLong(fingerprint);
+
+            for (int i = 0; i < m; i++)
+                put(graph.edgeAt(i).flow);
+            for (int id = 0; id < n; id++)
+                put(getTreeEdgeCode(graph.getVertex(id), tree));
+            for (int id = 0; id < n; id++)
+            {
+                Vertex v = graph.getVertex(id);
+                Edge e = v == null ? null : v.getTreeEdge();
+                put(e != null && tree.isConnectedToRoot(e) ? e.flow : 0);
+            }
+            for (int id = 0; id < n; id++)
+            {
+                Vertex v = graph.getVertex(id);
+                put(v == null ? 0L : v.getPotential());
+            }
+
+            flushBuffer();
+            // the checkpoint must survive a restart of the machine
+            channel.force(false);
+        }
+        finally
+        {
+            channel.close();
+            channel = null;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int getTreeEdgeCode(Vertex v, SpanningTree tree)
+    {
+        Edge e = v == null || !v.isActive() ? null : v.getTreeEdge();
+        if (e == null)
+            return NONE;
+        if (tree.isConnectedToRoot(e))
+            return e.from == v ? TO_ROOT : FROM_ROOT;
+        return e.getIndex();
+    }
+
+    /**
+     * Reads the basis, sets the flows of the edges and rebuilds the spanning
+     * tree. The whole basis is validated before it is applied, so a rejected
+     * checkpoint leaves the graph and the tree unchanged.
+     *
+     * @param path the checkpoint file
+     * @param graph the graph, which must be the graph the checkpoint was
+     * written for
+     * @param tree the spanning tree which is rebuilt
+     * @param artificialCost the cost of the artificial edges
+     * @param fingerprint the fingerprint of the graph
+     * @throws IOException
+     * @throws FileFormatException if the file is not a checkpoint of the graph
+     */
+    void read(Path path, Graph graph, SpanningTree tree, long artificialCost, long fingerprint)
+            throws IOException, FileFormatException
+    {
+        int m = graph.getNumberOfEdges(), n = graph.getVertexDomainSize();
+        String name = path.getFileName().toString();
+        int[] flows = new int[m], codes = new int[n], rootFlows = new int[n];
+        long[] potentials = new long[n];
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            if (buffer == null)
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+            buffer.clear();
+            buffer.flip();
+
+            if (get(name) != MAGIC)
+                throw new FileFormatException("File %s is not a checkpoint file.", name);
+            int version = get(name);
+            if (version != VERSION)
+                throw new FileFormatException("Unsupported checkpoint file version %d.", version);
+            if (get(name) != m || get(name) != n || getLong(name) != artificialCost)
+                throw new FileFormatException("Checkpoint %s does not belong to this graph.", name);
+            if (getLong(name) != fingerprint)
+                throw new FileFormatException("Checkpoint %s does not belong to this graph.", name);
+
+            for (int i = 0; i < m; i++)
+                flows[i] = get(name);
+            for (int id = 0; id < n; id++)
+                codes[id] = get(name);
+            for (int id = 0; id < n; id++)
+                rootFlows[id] = get(name);
+            for (int id = 0; id < n; id++)
+                potentials[id] = getLong(name);
+        }
+        finally
+        {
+            channel.close();
+            channel = null;
+        }
+
+        validate(graph, flows, codes, rootFlows, name);
+        for (int i = 0; i < m; i++)
+            graph.edgeAt(i).flow = flows[i];
+        rebuild(graph, tree, artificialCost, codes, rootFlows, potentials);
+    }
+
+    /*
+     * Checks that the tree edges form a spanning tree of the active vertices,
+     * that each flow lies within the bounds of its edge and that each edge
+     * outside the tree is at one of its bounds.
+     */
+    private static void validate(Graph graph, int[] flows, int[] codes, int[] rootFlows, String name)
+    {
+        int m = flows.length, n = codes.length;
+        boolean[] isTreeEdge = new boolean[m];
+        // the other end of the tree edge of each vertex, -1 for the root
+        int[] parent = new int[n];
+        for (int id = 0; id < n; id++)
+        {
+            Vertex v = graph.getVertex(id);
+            int code = codes[id];
+            if (v == null || !v.isActive())
+            {
+                if (code != NONE)
+                    throw new FileFormatException("Checkpoint %s references the missing vertex %d.", name, id);
+                continue;
+            }
+
+            if (code == TO_ROOT || code == FROM_ROOT)
+            {
+                if (rootFlows[id] < 0)
+                    throw new FileFormatException("Checkpoint %s has a negative artificial flow at vertex %d.", name, id);
+                parent[id] = -1;
+            }
+            else if (code >= 0 && code < m && !isTreeEdge[code]
+                    && (graph.edgeAt(code).from == v || graph.edgeAt(code).to == v))
+            {
+                Edge e = graph.edgeAt(code);
+                isTreeEdge[code] = true;
+                parent[id] = (e.from == v ? e.to : e.from).ID;
+            }
+            else
+                throw new FileFormatException("Checkpoint %s has an invalid tree edge at vertex %d.", name, id);
+        }
+
+        for (int i = 0; i < m; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            int flow = flows[i];
+            if (flow < e.lowerCapacity || flow > e.upperCapacity
+                    || (!isTreeEdge[i] && flow != e.lowerCapacity && flow != e.upperCapacity))
+                throw new FileFormatException("Checkpoint %s has an invalid flow on edge %d.", name, i);
+        }
+
+        // every vertex must reach the root, the vertices on the current path
+        // are marked by 1 and those known to reach the root by 2
+        byte[] mark = new byte[n];
+        int[] path = new int[n];
+        for (int id = 0; id < n; id++)
+        {
+            if (codes[id] == NONE)
+                continue;
+            int length = 0, x = id;
+            while (x >= 0 && mark[x] == 0)
+            {
+                if (codes[x] == NONE)
+                    throw new FileFormatException("Checkpoint %s references the missing vertex %d.", name, x);
+                mark[x] = 1;
+                path[length++] = x;
+                x = parent[x];
+            }
+            if (x >= 0 && mark[x] == 1)
+                throw new FileFormatException("Checkpoint %s is corrupt: the tree edges form a cycle.", name);
+            for (int k = 0; k < length; k++)
+                mark[path[k]] = 2;
+        }
+    }
+
+    // rebuilds the tree from a validated basis
+    private static void rebuild(Graph graph, SpanningTree tree, long artificialCost, int[] codes, int[] rootFlows,
+            long[] potentials)
+    {
+        int n = codes.length, count = 0;
+        Vertex[] vertices = new Vertex[n];
+        Edge[] treeEdges = new Edge[n];
+        long[] treePotentials = new long[n];
+        for (int id = 0; id < n; id++)
+        {
+            int code = codes[id];
+            if (code == NONE)
+                continue;
+            Vertex v = graph.getVertex(id);
+            Edge e;
+            if (code == TO_ROOT)
+                e = new Edge(rootFlows[id], artificialCost, 0, Integer.MAX_VALUE, v, tree.getRoot());
+            else if (code == FROM_ROOT)
+                e = new Edge(rootFlows[id], artificialCost, 0, Integer.MAX_VALUE, tree.getRoot(), v);
+            else
+                e = graph.edgeAt(code);
+
+            vertices[count] = v;
+            treeEdges[count] = e;
+            treePotentials[count] = potentials[id];
+            count++;
+        }
+        tree.rebuild(vertices, treeEdges, treePotentials, count);
+    }
+
+    /**
+     * Computes the fingerprint of a graph, which covers the balances of all
+     * active vertices and the end points, capacities and costs of all edges.
+     *
+     * @param graph the graph
+     * @return the fingerprint
+     */
+    static long fingerprint(Graph graph)
+    {
+        // 64 bit FNV-1a over the balances and the edge columns
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ graph.getVertexDomainSize()) * 0x100000001b3L;
+        for (int id = 0; id < graph.getVertexDomainSize(); id++)
+        {
+            Vertex v = graph.getVertex(id);
+            if (v == null || !v.isActive())
+                continue;
+            hash = (hash ^ id) * 0x100000001b3L;
+            hash = (hash ^ v.getBalance()) * 0x100000001b3L;
+        }
+        for (int i = 0; i < graph.getNumberOfEdges(); i++)
+        {
+            Edge e = graph.edgeAt(i);
+            hash = (hash ^ e.from.ID) * 0x100000001b3L;
+            hash = (hash ^ e.to.ID) * 0x100000001b3L;
+            hash = (hash ^ e.lowerCapacity) * 0x100000001b3L;
+            hash = (hash ^ e.upperCapacity) * 0x100000001b3L;
+            hash = (hash ^ e.cost) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void put(int value) throws IOException
+    {
+        if (buffer.remaining() < 4)
+            flushBuffer();
+        buffer.putInt(value);
+    }
+
+    private void put(long value) throws IOException
+    {
+        if (buffer.remaining() < 8)
+            flushBuffer();
+        buffer.putLong(value);
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private int get(String name) throws IOException
+    {
+        if (buffer.remaining() < 4)
+        {
+            buffer.compact();
+            while (buffer.position() < 4)
+                if (channel.read(buffer) < 0)
+                    throw new FileFormatException("Checkpoint %s is truncated.", name);
+            buffer.flip();
+        }
+        return buffer.getInt();
+    }
+
+    private long getLong(String name) throws IOException
+    {
+        return ((long) get(name) & 0xFFFFFFFFL) | ((long) get(name) << 32);
+    }
+}
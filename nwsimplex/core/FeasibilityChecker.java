@@ -0,0 +1,355 @@
+package nwsimplex.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Tests if an instance has a feasible flow by a maximum flow computation,
+ * before any pivot is performed. The lower capacities are shifted into the
+ * balances, a super source supplies each vertex with positive netto balance
+ * and each vertex with negative netto balance is connected to a super sink.
+ * The instance is feasible if the balances sum up to zero and the maximum
+ * flow saturates all supplies.
+ *
+ * The maximum flow is computed by the FIFO push-relabel algorithm with
+ * periodic global relabeling, which is close to linear on typical networks.
+ * Only the first phase is performed, which finds the value of the flow and a
+ * minimum cut. If the instance is infeasible, the minimum cut is reported: a
+ * set of vertices whose netto supply exceeds the capacity of the edges that
+ * leave it.
+ *
+ * @author mfj
+ */
+public class FeasibilityChecker
+{
+
+    /**
+     * Checks the balances and capacities of a graph.
+     *
+     * @param graph the graph, which is not modified
+     * @return the result of the check
+     */
+    public Result check(Graph graph)
+    {
+        return new MaxFlow(graph).run();
+    }
+
+    /**
+     * The result of a feasibility check.
+     */
+    public static class Result
+    {
+
+        private final long requiredFlow, maxFlow, balanceSum;
+        private final int[] cutVertices, cutEdges;
+        private final long cutSupply, cutCapacity;
+
+        Result(long requiredFlow, long maxFlow, long balanceSum, int[] cutVertices, int[] cutEdges, long cutSupply,
+                long cutCapacity)
+        {
+            this.requiredFlow = requiredFlow;
+            this.maxFlow = maxFlow;
+            this.balanceSum = balanceSum;
+            this.cutVertices = cutVertices;
+            this.cutEdges = cutEdges;
+            this.cutSupply = cutSupply;
+            this.cutCapacity = cutCapacity;
+        }
+
+        /**
+         * Tests if the instance has a feasible flow.
+         */
+        public boolean isFeasible()
+        {
+            return balanceSum == 0 && maxFlow == requiredFlow;
+        }
+
+        /**
+         * Gets the sum of all positive netto balances.
+         */
+        public long getRequiredFlow()
+        {
+            return requiredFlow;
+        }
+
+        /**
+         * Gets the value of the maximum flow from the supplies to the
+         * demands.
+         */
+        public long getMaxFlow()
+        {
+            return maxFlow;
+        }
+
+        /**
+         * Gets the sum of all balances, which must be zero.
+         */
+        public long getBalanceSum()
+        {
+            return balanceSum;
+        }
+
+        /**
+         * Gets the id's of the vertices on the source side of the minimum
+         * cut, which cannot ship their supply.
+         */
+        public int[] getCutVertices()
+        {
+            return cutVertices.clone();
+        }
+
+        /**
+         * Gets the handles of the edges which leave the cut, all of them are
+         * saturated by the maximum flow.
+         */
+        public int[] getCutEdges()
+        {
+            return cutEdges.clone();
+        }
+
+        /**
+         * Gets the netto supply of the vertices of the cut.
+         */
+        public long getCutSupply()
+        {
+            return cutSupply;
+        }
+
+        /**
+         * Gets the capacity of the edges which leave the cut, above their
+         * lower capacities.
+         */
+        public long getCutCapacity()
+        {
+            return cutCapacity;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (isFeasible())
+                return "feasible, flow=" + maxFlow;
+            if (balanceSum != 0)
+                return "infeasible, the balances sum up to " + balanceSum;
+            return "infeasible, " + cutVertices.length + " vertices with supply " + cutSupply
+                    + " are left by edges of capacity " + cutCapacity;
+        }
+    }
+
+    /**
+     * The residual network, stored as arcs grouped by their tail. Each edge of
+     * the graph gives an arc and its reverse arc, each vertex with negative
+     * netto balance an arc to the sink.
+     */
+    private static class MaxFlow
+    {
+
+        private final Graph graph;
+        // the vertices are indexed by their id, the sink comes last
+        private final int nodes, sink;
+        private final int[] first, head, mate;
+        private final long[] capacity;
+        private final long[] excess;
+        private final int[] label, current;
+        private final int[] queue, bfs;
+        private final boolean[] queued;
+        private long requiredFlow, balanceSum;
+
+        MaxFlow(Graph graph)
+        {
+            this.graph = graph;
+            this.sink = graph.getVertexDomainSize();
+            this.nodes = sink + 1;
+            excess = new long[nodes];
+            first = new int[nodes + 1];
+
+            int m = graph.getNumberOfEdges(), arcs = 2 * m;
+            for (int i = 0; i < m; i++)
+            {
+                Edge e = graph.edgeAt(i);
+                first[e.from.ID + 1]++;
+                first[e.to.ID + 1]++;
+            }
+            Iterator<Vertex> vertices = graph.vertexIterator();
+            while (vertices.hasNext())
+            {
+                Vertex v = vertices.next();
+                int balance = v.nettoBalance();
+                balanceSum += balance;
+                excess[v.ID] = balance;
+                if (balance > 0)
+                    requiredFlow += balance;
+                else if (balance < 0)
+                {
+                    first[v.ID + 1]++;
+                    first[sink + 1]++;
+                    arcs += 2;
+                }
+            }
+            for (int v = 0; v < nodes; v++)
+                first[v + 1] += first[v];
+
+            head = new int[arcs];
+            mate = new int[arcs];
+            capacity = new long[arcs];
+            int[] fill = Arrays.copyOf(first, nodes);
+            for (int i = 0; i < m; i++)
+            {
+                Edge e = graph.edgeAt(i);
+                addArc(fill, e.from.ID, e.to.ID, (long) e.upperCapacity - e.lowerCapacity);
+            }
+            for (int v = 0; v < sink; v++)
+                if (excess[v] < 0)
+                {
+                    addArc(fill, v, sink, -excess[v]);
+                    excess[v] = 0;
+                }
+
+            label = new int[nodes];
+            current = new int[nodes];
+            queue = new int[nodes];
+            bfs = new int[nodes];
+            queued = new boolean[nodes];
+        }
+
+        private void addArc(int[] fill, int from, int to, long cap)
+        {
+            int a = fill[from]++, b = fill[to]++;
+            head[a] = to;
+            head[b] = from;
+            mate[a] = b;
+            mate[b] = a;
+            capacity[a] = cap;
+        }
+
+        Result run()
+        {
+            // the queue is a ring buffer, each node is contained at most once
+            int size = 0, take = 0;
+            globalRelabel();
+            for (int v = 0; v < sink; v++)
+                if (excess[v] > 0 && label[v] < nodes)
+                {
+                    queue[(take + size++) % nodes] = v;
+                    queued[v] = true;
+                }
+
+            // relabel all nodes from scratch after about one relabel per node
+            int relabels = 0;
+            while (size > 0)
+            {
+                int v = queue[take];
+                take = (take + 1) % nodes;
+                size--;
+                queued[v] = false;
+
+                while (excess[v] > 0 && label[v] < nodes)
+                {
+                    if (current[v] == first[v + 1])
+                    {
+                        relabel(v);
+                        if (++relabels >= nodes)
+                        {
+                            globalRelabel();
+                            relabels = 0;
+                        }
+                        continue;
+                    }
+                    int a = current[v], w = head[a];
+                    if (capacity[a] > 0 && label[v] == label[w] + 1)
+                    {
+                        long delta = Math.min(excess[v], capacity[a]);
+                        capacity[a] -= delta;
+                        capacity[mate[a]] += delta;
+                        excess[v] -= delta;
+                        excess[w] += delta;
+                        if (w != sink && !queued[w])
+                        {
+                            queue[(take + size++) % nodes] = w;
+                            queued[w] = true;
+                        }
+                    }
+                    else
+                        current[v]++;
+                }
+            }
+
+            globalRelabel();
+            return buildResult();
+        }
+
+        private void relabel(int v)
+        {
+            int min = nodes - 1;
+            for (int a = first[v]; a < first[v + 1]; a++)
+                if (capacity[a] > 0)
+                    min = Math.min(min, label[head[a]]);
+            label[v] = min + 1;
+            current[v] = first[v];
+        }
+
+        // sets each label to the residual distance to the sink, nodes which
+        // cannot reach the sink get the label nodes
+        private void globalRelabel()
+        {
+            Arrays.fill(label, nodes);
+            label[sink] = 0;
+            int front = 0, back = 0;
+            bfs[back++] = sink;
+            while (front < back)
+            {
+                int w = bfs[front++];
+                for (int a = first[w]; a < first[w + 1]; a++)
+                {
+                    int v = head[a];
+                    // the arc from v to w is the mate of a
+                    if (label[v] == nodes && capacity[mate[a]] > 0)
+                    {
+                        label[v] = label[w] + 1;
+                        bfs[back++] = v;
+                    }
+                }
+            }
+            for (int v = 0; v < nodes; v++)
+                current[v] = first[v];
+        }
+
+        private Result buildResult()
+        {
+            long maxFlow = excess[sink];
+            if (balanceSum != 0 || maxFlow == requiredFlow)
+                return new Result(requiredFlow, maxFlow, balanceSum, new int[0], new int[0], 0, 0);
+
+            // the vertices which cannot reach the sink form a minimum cut
+            int count = 0;
+            long cutSupply = 0, cutCapacity = 0;
+            int[] cutVertices = new int[sink];
+            Iterator<Vertex> vertices = graph.vertexIterator();
+            while (vertices.hasNext())
+            {
+                Vertex v = vertices.next();
+                if (label[v.ID] == nodes)
+                {
+                    cutVertices[count++] = v.ID;
+                    cutSupply += v.nettoBalance();
+                }
+            }
+            int edges = 0;
+            int[] cutEdges = new int[graph.getNumberOfEdges()];
+            for (int i = 0; i < graph.getNumberOfEdges(); i++)
+            {
+                Edge e = graph.edgeAt(i);
+                if (label[e.from.ID] == nodes && label[e.to.ID] < nodes)
+                {
+                    cutEdges[edges++] = e.getId();
+                    cutCapacity += (long) e.upperCapacity - e.lowerCapacity;
+                }
+            }
+            return new Result(requiredFlow, maxFlow, balanceSum, Arrays.copyOf(cutVertices, count),
+                    Arrays.copyOf(cutEdges, edges), cutSupply, cutCapacity);
+        }
+    }
+}
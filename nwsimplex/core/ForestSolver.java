@@ -0,0 +1,156 @@
+package nwsimplex.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Solves an instance whose graph is a forest, see {@link Graph#isForest()},
+ * without pivoting. Without cycles there is only one flow which satisfies the
+ * balances: the edge above a vertex carries the netto supply of the subtree
+ * below it. The flows are therefore computed by a single pass over the
+ * vertices in post order, which checks the capacity of each edge and that the
+ * supply of each component sums up to zero.
+ *
+ * Since all edges are tree edges, the edges of the forest together with an
+ * artificial edge without flow above the root of each component form an
+ * optimal spanning tree, whose potentials make the reduced cost of each edge
+ * zero. This tree is installed into the solver, so the solution supports the
+ * same queries as one found by pivoting.
+ *
+ * @author mfj
+ */
+class ForestSolver
+{
+
+    private final Graph graph;
+    private final SpanningTree spanningTree;
+
+    ForestSolver(Graph graph, SpanningTree spanningTree)
+    {
+        this.graph = graph;
+        this.spanningTree = spanningTree;
+    }
+
+    /**
+     * Computes the flow and installs the spanning tree. If the instance is
+     * infeasible neither the flows nor the tree are changed.
+     *
+     * @param artificialCost the cost of the artificial edges
+     * @return true if the instance is feasible
+     */
+    boolean solve(long artificialCost)
+    {
+        int domain = graph.getVertexDomainSize(), m = graph.getNumberOfEdges();
+        // the passes below work on copies of the edges, in order to avoid
+        // chasing the edge and vertex objects in the order of the tree
+        int[] tail = new int[m], head = new int[m], residual = new int[m], flow = new int[m];
+        // the incident edges of each vertex, grouped by the vertex id
+        int[] first = new int[domain + 1], incident = new int[2 * m];
+        // the netto supply of each vertex, later of its subtree
+        long[] supply = new long[domain];
+        for (int i = 0; i < m; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            tail[i] = e.from.ID;
+            head[i] = e.to.ID;
+            residual[i] = e.upperCapacity - e.lowerCapacity;
+            flow[i] = e.lowerCapacity;
+            first[tail[i] + 1]++;
+            first[head[i] + 1]++;
+            supply[tail[i]] -= e.lowerCapacity;
+            supply[head[i]] += e.lowerCapacity;
+        }
+        for (int v = 0; v < domain; v++)
+            first[v + 1] += first[v];
+        int[] fill = Arrays.copyOf(first, domain);
+        for (int i = 0; i < m; i++)
+        {
+            incident[fill[tail[i]]++] = i;
+            incident[fill[head[i]]++] = i;
+        }
+
+        // orders each component breadth first from its root, the root has no
+        // edge above it
+        int count = 0;
+        int[] order = new int[graph.getNumberOfVertices()];
+        int[] above = new int[domain];
+        boolean[] visited = new boolean[domain];
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            Vertex root = vertices.next();
+            supply[root.ID] += root.getBalance();
+            if (visited[root.ID])
+                continue;
+            visited[root.ID] = true;
+            above[root.ID] = -1;
+            order[count++] = root.ID;
+            for (int k = count - 1; k < count; k++)
+            {
+                int v = order[k];
+                for (int a = first[v]; a < first[v + 1]; a++)
+                {
+                    int i = incident[a], w = tail[i] == v ? head[i] : tail[i];
+                    if (!visited[w])
+                    {
+                        visited[w] = true;
+                        above[w] = i;
+                        order[count++] = w;
+                    }
+                }
+            }
+        }
+
+        // post order: the supply of a subtree leaves it by the edge above it
+        for (int k = count - 1; k >= 0; k--)
+        {
+            int v = order[k], i = above[v];
+            long s = supply[v];
+            if (i < 0)
+            {
+                if (s != 0)
+                    return false;
+                continue;
+            }
+            long shifted = tail[i] == v ? s : -s;
+            if (shifted < 0 || shifted > residual[i])
+                return false;
+            flow[i] += (int) shifted;
+            supply[tail[i] == v ? head[i] : tail[i]] += s;
+        }
+
+        // pre order: the potentials make the reduced costs of the tree zero
+        Vertex root = spanningTree.getRoot();
+        Vertex[] treeVertices = new Vertex[count];
+        Edge[] treeEdges = new Edge[count];
+        long[] potentials = new long[count], potential = new long[domain];
+        for (int k = 0; k < count; k++)
+        {
+            int v = order[k], i = above[v];
+            treeVertices[k] = graph.getVertex(v);
+            if (i < 0)
+            {
+                treeEdges[k] = new Edge(0, artificialCost, 0, Integer.MAX_VALUE, treeVertices[k], root);
+                potential[v] = root.getPotential() + artificialCost;
+            }
+            else
+            {
+                treeEdges[k] = graph.edgeAt(i);
+                if (tail[i] == v)
+                    potential[v] = potential[head[i]] + treeEdges[k].cost;
+                else
+                    potential[v] = potential[tail[i]] - treeEdges[k].cost;
+            }
+            potentials[k] = potential[v];
+        }
+
+        for (int i = 0; i < m; i++)
+            graph.edgeAt(i).flow = flow[i];
+        spanningTree.rebuild(treeVertices, treeEdges, potentials, count);
+        return true;
+    }
+}
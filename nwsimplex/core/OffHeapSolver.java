@@ -0,0 +1,305 @@
+package nwsimplex.core;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.GraphBuilder;
+import nwsimplex.graph.IntColumn;
+import nwsimplex.graph.OffHeapGraph;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * A network simplex solver for an {@link OffHeapGraph}, which reads the edges
+ * from the columns of the graph and writes the flows and potentials back into
+ * them, so the heap usage does not depend on the number of edges. Only the
+ * vertices, the spanning tree and the edges within the tree are held on the
+ * heap. The graph of the solver contains only the vertices, which carry their
+ * netto balances.
+ *
+ * The state of each edge, see {@link PricingKernel}, is kept within an
+ * anonymous column, and the flow of an edge outside the tree within the flow
+ * column of the graph. The edges are priced by the block search rule, each
+ * block is copied from the columns into small arrays which are searched by
+ * the fastest available kernel. When an edge enters the tree, an edge object
+ * is created for it, whose flow is written back when it leaves the tree. Once
+ * a solve stops, the flows of the tree edges and the potentials of all
+ * vertices are written into the graph.
+ *
+ * The graph must not be modified while it is solved.
+ *
+ * @author mfj
+ */
+public class OffHeapSolver extends AbstractMCFSolver
+{
+
+    private final OffHeapGraph offHeapGraph;
+    private final Vertex[] vertices;
+    private final int numberOfEdges;
+    private final int blockSize;
+    private final PricingKernel kernel;
+    private final IntColumn state;
+    // the block which is priced, copied from the columns
+    private final int[] cost, from, to, blockState;
+    // mirrored by the spanning tree, indexed by the vertex id
+    private final long[] potential;
+    private final Collection<Edge> boundEdges = new BoundArcs();
+    // the first edge of the next block to search
+    private int next = 0;
+    private long artificialCost = -1;
+
+    /**
+     * Instantiates a new solver with a block size of
+     * {@code sqrt(numberOfEdges)}.
+     *
+     * @param graph the graph to solve
+     * @throws IOException if the state column can not be allocated
+     */
+    public OffHeapSolver(OffHeapGraph graph) throws IOException
+    {
+        this(graph, Math.max(1, (int) Math.sqrt(graph.getNumberOfEdges())));
+    }
+
+    /**
+     * Instantiates a new solver. The constructor takes a pass over the edges,
+     * which computes the netto balances.
+     *
+     * @param graph the graph to solve
+     * @param blockSize the number of edges within a block
+     * @throws IOException if the state column can not be allocated
+     */
+    public OffHeapSolver(OffHeapGraph graph, int blockSize) throws IOException
+    {
+        super(buildGraph(graph), new SpanningTree());
+        if (blockSize < 1)
+            throw new IllegalArgumentException();
+        this.offHeapGraph = graph;
+        this.numberOfEdges = graph.getNumberOfEdges();
+        this.blockSize = Math.min(blockSize, Math.max(1, numberOfEdges));
+        this.kernel = PricingKernel.getInstance();
+        this.state = IntColumn.allocate(numberOfEdges);
+        this.cost = new int[this.blockSize];
+        this.from = new int[this.blockSize];
+        this.to = new int[this.blockSize];
+        this.blockState = new int[this.blockSize];
+
+        int domain = graph.getVertexDomainSize();
+        this.vertices = new Vertex[domain];
+        for (int id = 0; id < domain; id++)
+            vertices[id] = getGraph().getVertex(id);
+        this.potential = new long[domain];
+        getSpanningTree().setPotentialMirror(potential);
+    }
+
+    // the vertices carry the netto balances, which follow from a pass over
+    // the edges
+    private static Graph buildGraph(OffHeapGraph graph)
+    {
+        int domain = graph.getVertexDomainSize();
+        long[] balances = new long[domain];
+        for (int id = 0; id < domain; id++)
+            balances[id] = graph.getBalance(id);
+        for (int e = 0; e < graph.getNumberOfEdges(); e++)
+        {
+            int lowerCapacity = graph.getLowerCapacity(e);
+            if (lowerCapacity > graph.getUpperCapacity(e))
+                throw new IllegalArgumentException("Edge " + e + " has a lower capacity above its upper one.");
+            balances[graph.getFrom(e)] -= lowerCapacity;
+            balances[graph.getTo(e)] += lowerCapacity;
+        }
+
+        GraphBuilder builder = new GraphBuilder(domain, 0);
+        for (int id = 0; id < domain; id++)
+        {
+            if (balances[id] != (int) balances[id])
+                throw new IllegalArgumentException("The netto balance of vertex " + id + " exceeds the int range.");
+            builder.addVertex(id, (int) balances[id]);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Collection<Edge> getLowerBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    @Override
+    public Collection<Edge> getUpperBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    /**
+     * Sets each edge to its lower capacity before the spanning tree of
+     * artificial edges is built.
+     */
+    @Override
+    protected void initializeSpanningTree()
+    {
+        for (int e = 0; e < numberOfEdges; e++)
+        {
+            int lowerCapacity = offHeapGraph.getLowerCapacity(e);
+            offHeapGraph.setFlow(e, lowerCapacity);
+            // fixed edges are never priced
+            state.set(e, lowerCapacity == offHeapGraph.getUpperCapacity(e)
+                    ? PricingKernel.STATE_TREE : PricingKernel.STATE_LOWER);
+        }
+        super.initializeSpanningTree();
+    }
+
+    @Override
+    public Edge getNextEntering()
+    {
+        int searched = 0;
+        while (searched < numberOfEdges)
+        {
+            if (next >= numberOfEdges)
+                next = 0;
+            int length = Math.min(blockSize, numberOfEdges - next);
+            offHeapGraph.costColumn().get(next, cost, 0, length);
+            offHeapGraph.fromColumn().get(next, from, 0, length);
+            offHeapGraph.toColumn().get(next, to, 0, length);
+            state.get(next, blockState, 0, length);
+            int entering = kernel.findMostViolating(cost, from, to, blockState, potential, 0, length);
+
+            searched += length;
+            int first = next;
+            next += length;
+            if (entering >= 0)
+            {
+                int e = first + entering;
+                return new Arc(e, offHeapGraph.getFlow(e), cost[entering], offHeapGraph.getLowerCapacity(e),
+                        offHeapGraph.getUpperCapacity(e), vertices[from[entering]], vertices[to[entering]]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the flows of the tree edges and the potentials into the graph.
+     */
+    @Override
+    protected void solveStopped(SolverStatus status)
+    {
+        for (Vertex v : vertices)
+        {
+            Edge e = v.getTreeEdge();
+            if (e instanceof Arc)
+                offHeapGraph.setFlow(((Arc) e).position, e.flow);
+            offHeapGraph.setPotential(v.ID, v.getPotential());
+        }
+    }
+
+    /**
+     * Gets the cost of the artificial edges, which is derived from the largest
+     * absolute cost of all edges, as tracked by the graph.
+     */
+    @Override
+    protected long getArtificialCost()
+    {
+        if (artificialCost < 0)
+            artificialCost = artificialCost(vertices.length, offHeapGraph.getMaxAbsoluteCost());
+        return artificialCost;
+    }
+
+    /**
+     * Gets the cost of the flow, which takes a pass over the columns.
+     */
+    @Override
+    public long getObjective()
+    {
+        long objective = 0;
+        for (int e = 0; e < numberOfEdges; e++)
+            objective += (long) offHeapGraph.getCost(e) * offHeapGraph.getFlow(e);
+        // the flows of the tree edges are written back once the solve stops
+        for (Vertex v : vertices)
+        {
+            Edge e = v.getTreeEdge();
+            if (e instanceof Arc)
+                objective += e.cost * (e.flow - offHeapGraph.getFlow(((Arc) e).position));
+        }
+        return objective;
+    }
+
+    /**
+     * Gets the lower bound on the optimal cost given by the potentials, which
+     * takes a pass over the columns. The balances of the vertices are their
+     * netto balances, so the lower capacities are accounted for separately.
+     */
+    @Override
+    public long getLowerBound()
+    {
+        long bound = 0;
+        for (Vertex v : vertices)
+            bound += (long) v.getBalance() * v.getPotential();
+        for (int e = 0; e < numberOfEdges; e++)
+        {
+            int lowerCapacity = offHeapGraph.getLowerCapacity(e);
+            long reducedCost = offHeapGraph.getCost(e) - potential[offHeapGraph.getFrom(e)]
+                    + potential[offHeapGraph.getTo(e)];
+            bound += (long) offHeapGraph.getCost(e) * lowerCapacity;
+            if (reducedCost < 0)
+                bound += reducedCost * ((long) offHeapGraph.getUpperCapacity(e) - lowerCapacity);
+        }
+        return bound;
+    }
+
+    // an edge of the graph while it is within the tree
+    private static class Arc extends Edge
+    {
+
+        final int position;
+
+        Arc(int position, int flow, int cost, int lowerCapacity, int upperCapacity, Vertex from, Vertex to)
+        {
+            super(flow, cost, lowerCapacity, upperCapacity, from, to);
+            this.position = position;
+        }
+    }
+
+    /**
+     * Records the edges which enter and leave the tree within the state
+     * column. Artificial edges are not stored.
+     */
+    private class BoundArcs extends AbstractCollection<Edge>
+    {
+
+        // called for the leaving edge
+        @Override
+        public boolean add(Edge e)
+        {
+            if (!(e instanceof Arc))
+                return false;
+            int position = ((Arc) e).position;
+            offHeapGraph.setFlow(position, e.flow);
+            state.set(position, e.hasLowerBound() ? PricingKernel.STATE_LOWER : PricingKernel.STATE_UPPER);
+            return true;
+        }
+
+        // called for the entering edge
+        @Override
+        public boolean remove(Object o)
+        {
+            if (!(o instanceof Arc))
+                return false;
+            state.set(((Arc) o).position, PricingKernel.STATE_TREE);
+            return true;
+        }
+
+        @Override
+        public Iterator<Edge> iterator()
+        {
+            throw new UnsupportedOperationException("The edges at their bounds are not stored.");
+        }
+
+        @Override
+        public int size()
+        {
+            throw new UnsupportedOperationException("The edges at their bounds are not stored.");
+        }
+    }
+}
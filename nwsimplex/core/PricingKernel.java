@@ -0,0 +1,113 @@
+package nwsimplex.core;
+
+/**
+ * A pricing kernel searches a range of edges, which are stored column wise in
+ * primitive arrays, for the edge which violates the optimality condition the
+ * most.
+ *
+ * The reduced cost of an edge e is
+ * {@code cost[e] - potential[from[e]] + potential[to[e]]}. An edge at its lower
+ * bound violates the optimality condition if its reduced cost is negative, an
+ * edge at its upper bound if its reduced cost is positive. This sign flip is
+ * encoded within the state of an edge, which is {@link #STATE_LOWER},
+ * {@link #STATE_UPPER} or {@link #STATE_TREE}, such that an edge is violating
+ * iff {@code state[e] * reducedCost(e) < 0}.
+ *
+ * @author mfj
+ */
+public abstract class PricingKernel
+{
+
+    /**
+     * the state of an edge whose flow is at the lower bound
+     */
+    public static final int STATE_LOWER = 1;
+    /**
+     * the state of an edge whose flow is at the upper bound
+     */
+    public static final int STATE_UPPER = -1;
+    /**
+     * the state of an edge which is contained within the spanning tree
+     */
+    public static final int STATE_TREE = 0;
+    /**
+     * the system property which disables the vectorized kernel if set to
+     * false.
+     */
+    public static final String VECTOR_PROPERTY = "nwsimplex.pricing.vector";
+    // name of the kernel which requires the jdk.incubator.vector module
+    private static final String VECTOR_KERNEL = "nwsimplex.core.VectorPricingKernel";
+    private static PricingKernel instance;
+
+    /**
+     * Finds the edge within {@code [begin, end)} which has the most negative
+     * value of {@code state[e] * reducedCost(e)}.
+     *
+     * @param cost the edge costs
+     * @param from the origin vertex of each edge
+     * @param to the target vertex of each edge
+     * @param state the state of each edge
+     * @param potential the vertex potentials, indexed by the vertex id
+     * @param begin the first edge to search
+     * @param end the end of the range (exclusive)
+     * @return the index of the most violating edge or -1 if no edge within the
+     * range is violating
+     */
+    public abstract int findMostViolating(int[] cost, int[] from, int[] to, int[] state, long[] potential,
+            int begin, int end);
+
+    /**
+     * Gets the fastest kernel which is available on this platform. This is the
+     * vectorized kernel if the jdk.incubator.vector module is present,
+     * otherwise the scalar kernel.
+     *
+     * @return a shared kernel instance
+     */
+    public static synchronized PricingKernel getInstance()
+    {
+        if (instance == null)
+            instance = loadKernel();
+        return instance;
+    }
+
+    private static PricingKernel loadKernel()
+    {
+        if (!"false".equals(System.getProperty(VECTOR_PROPERTY)))
+        {
+            try
+            {
+                return Class.forName(VECTOR_KERNEL).asSubclass(PricingKernel.class).getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError ex)
+            {
+                // the vector api is not available, fall back to the scalar kernel
+            }
+        }
+        return new ScalarPricingKernel();
+    }
+
+    /**
+     * A straight forward kernel which tests one edge after another.
+     */
+    public static class ScalarPricingKernel extends PricingKernel
+    {
+
+        @Override
+        public int findMostViolating(int[] cost, int[] from, int[] to, int[] state, long[] potential,
+                int begin, int end)
+        {
+            long min = 0;
+            int minEdge = -1;
+            for (int e = begin; e < end; e++)
+            {
+                long violation = state[e] * (cost[e] - potential[from[e]] + potential[to[e]]);
+                if (violation < min)
+                {
+                    min = violation;
+                    minEdge = e;
+                }
+            }
+            return minEdge;
+        }
+    }
+}
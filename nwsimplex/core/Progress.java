@@ -0,0 +1,90 @@
+package nwsimplex.core;
+
+/**
+ * An immutable snapshot of a running solve, which is passed to a
+ * {@link ProgressListener}. The snapshot contains only aggregated values, the
+ * graph itself is not copied.
+ *
+ * @author mfj
+ */
+public class Progress
+{
+
+    private final long pivots;
+    private final long elapsedNanos;
+    private final long objective;
+    private final long artificialFlow;
+    private final double pivotsPerSecond;
+    private final SolverStatus status;
+
+    Progress(long pivots, long elapsedNanos, long objective, long artificialFlow, double pivotsPerSecond,
+            SolverStatus status)
+    {
+        this.pivots = pivots;
+        this.elapsedNanos = elapsedNanos;
+        this.objective = objective;
+        this.artificialFlow = artificialFlow;
+        this.pivotsPerSecond = pivotsPerSecond;
+        this.status = status;
+    }
+
+    /**
+     * Gets the number of pivots performed by this solve so far.
+     */
+    public long getPivots()
+    {
+        return pivots;
+    }
+
+    /**
+     * Gets the time since the solve started.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the cost of the current flow within the graph, which excludes the
+     * cost of the artificial edges.
+     */
+    public long getObjective()
+    {
+        return objective;
+    }
+
+    /**
+     * Gets the total flow which is still routed over artificial edges. The
+     * flow is feasible once it drops to zero.
+     */
+    public long getArtificialFlow()
+    {
+        return artificialFlow;
+    }
+
+    /**
+     * Gets the pivot rate since the previous snapshot.
+     */
+    public double getPivotsPerSecond()
+    {
+        return pivotsPerSecond;
+    }
+
+    /**
+     * Gets the reason the solve stopped.
+     *
+     * @return the status or null if the solve is still running
+     */
+    public SolverStatus getStatus()
+    {
+        return status;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "pivots=" + pivots + ", elapsed=" + elapsedNanos / 1000000 + "ms, objective=" + objective
+                + ", artificialFlow=" + artificialFlow + ", pivotsPerSecond=" + Math.round(pivotsPerSecond)
+                + (status == null ? "" : ", status=" + status);
+    }
+}
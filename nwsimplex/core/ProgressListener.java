@@ -0,0 +1,20 @@
+package nwsimplex.core;
+
+/**
+ * A listener which receives the progress of a running solve, see
+ * {@link AbstractMCFSolver#setProgressListener(ProgressListener, long, long, java.util.concurrent.TimeUnit)}.
+ * The listener is called by the solving thread, so it should return quickly.
+ *
+ * @author mfj
+ */
+public interface ProgressListener
+{
+
+    /**
+     * Called after a batch of pivots once the pivot or the time interval has
+     * passed since the previous call, and once more when the solve stops.
+     *
+     * @param progress the progress of the solve
+     */
+    void progress(Progress progress);
+}
@@ -0,0 +1,470 @@
+package nwsimplex.core;
+
+import java.util.Arrays;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * Post-optimal sensitivity analysis of an optimal spanning tree solution. For
+ * each edge it gives the range of its cost and of its upper capacity within
+ * which the current basis stays optimal, so the optimal flow of a changed
+ * instance follows without solving it again. Within the cost range the flow
+ * does not change, within the capacity range only the flow on the cycle of
+ * the edge changes. As the basis may be degenerate, the ranges are sufficient
+ * but not always the largest possible ones.
+ *
+ * The cost range of an edge outside the tree follows from its reduced cost.
+ * Changing the cost of a tree edge shifts the potentials of the subtree below
+ * it, and with them the reduced costs of all edges which cross the cut between
+ * the subtree and the rest of the tree, that is the edges whose cycle
+ * contains the tree edge. Each edge outside the tree therefore limits the
+ * tree edges on its cycle, and the tightest limit of each tree edge is found
+ * by processing these edges in order of their reduced costs, while a union
+ * find structure skips the tree edges which are already limited. This takes a
+ * single sort and a few linear passes over the edges.
+ *
+ * Changing the upper capacity of an edge at its upper bound moves the flow
+ * around its cycle, so the capacity range of such an edge is limited by the
+ * smallest residual capacities on the two paths from its ends up to the apex
+ * of its cycle. The apexes are found by a single pass over the tree in
+ * preorder, and the path minima by a pass in reverse preorder, which links
+ * each vertex to its parent within a union find structure that keeps the
+ * minima along the compressed paths. Both passes are nearly linear.
+ *
+ * @author mfj
+ */
+public class SensitivityAnalysis
+{
+
+    /**
+     * the bound of a range which is unbounded below
+     */
+    public static final long UNBOUNDED_BELOW = Long.MIN_VALUE;
+    /**
+     * the bound of a range which is unbounded above
+     */
+    public static final long UNBOUNDED_ABOVE = Long.MAX_VALUE;
+    private final long[] minCost, maxCost, minCapacity, maxCapacity;
+    // the tree in bfs order, the root has index 0
+    private Vertex[] vertices;
+    private int[] parent;
+    // index of a vertex by its id, shifted by one to include the root
+    private int[] index;
+    // true if the tree edge of a vertex points to its parent
+    private boolean[] upward;
+    // preorder interval of each subtree
+    private int[] enter, exit;
+
+    /**
+     * Analyzes the flow stored within the graph.
+     *
+     * @param graph the graph whose flow is optimal
+     * @param tree the optimal spanning tree
+     */
+    SensitivityAnalysis(Graph graph, SpanningTree tree)
+    {
+        int m = graph.getNumberOfEdges();
+        minCost = new long[m];
+        maxCost = new long[m];
+        minCapacity = new long[m];
+        maxCapacity = new long[m];
+
+        indexTree(graph, tree);
+        boolean[] isTreeEdge = new boolean[m];
+        for (int x = 1; x < vertices.length; x++)
+        {
+            int i = vertices[x].getTreeEdge().getIndex();
+            if (i >= 0)
+                isTreeEdge[i] = true;
+        }
+        analyzeCosts(graph, isTreeEdge);
+        analyzeCapacities(graph, isTreeEdge);
+    }
+
+    /**
+     * Gets the smallest cost of an edge for which the flow stays optimal.
+     *
+     * @return the cost or {@link #UNBOUNDED_BELOW}
+     */
+    public long getMinCost(Edge e)
+    {
+        return minCost[e.getIndex()];
+    }
+
+    /**
+     * Gets the largest cost of an edge for which the flow stays optimal.
+     *
+     * @return the cost or {@link #UNBOUNDED_ABOVE}
+     */
+    public long getMaxCost(Edge e)
+    {
+        return maxCost[e.getIndex()];
+    }
+
+    /**
+     * Gets the smallest upper capacity of an edge for which the basis stays
+     * optimal.
+     *
+     * @return the capacity
+     */
+    public long getMinCapacity(Edge e)
+    {
+        return minCapacity[e.getIndex()];
+    }
+
+    /**
+     * Gets the largest upper capacity of an edge for which the basis stays
+     * optimal.
+     *
+     * @return the capacity or {@link #UNBOUNDED_ABOVE}
+     */
+    public long getMaxCapacity(Edge e)
+    {
+        return maxCapacity[e.getIndex()];
+    }
+
+    private void indexTree(Graph graph, SpanningTree tree)
+    {
+        int n = 0;
+        vertices = new Vertex[graph.getVertexDomainSize() + 1];
+        SpanningTree.TreeIterator iter = tree.treeIterator(tree.getRoot());
+        for (Vertex v = iter.next(); v != null; v = iter.next())
+            vertices[n++] = v;
+        vertices = Arrays.copyOf(vertices, n);
+
+        index = new int[graph.getVertexDomainSize() + 1];
+        parent = new int[n];
+        upward = new boolean[n];
+        for (int x = 0; x < n; x++)
+            index[vertices[x].ID + 1] = x;
+        // parents precede their children in bfs order
+        int[] childCount = new int[n + 1];
+        for (int x = 1; x < n; x++)
+        {
+            Vertex v = vertices[x];
+            Edge e = v.getTreeEdge();
+            upward[x] = e.from == v;
+            parent[x] = index[(upward[x] ? e.to : e.from).ID + 1];
+            childCount[parent[x]]++;
+        }
+
+        // the children of each vertex as consecutive ranges, for the preorder
+        int[] firstChild = new int[n + 1];
+        for (int x = 0; x < n; x++)
+            firstChild[x + 1] = firstChild[x] + childCount[x];
+        int[] children = new int[Math.max(0, n - 1)];
+        int[] fill = Arrays.copyOf(firstChild, n);
+        for (int x = 1; x < n; x++)
+            children[fill[parent[x]]++] = x;
+
+        enter = new int[n];
+        exit = new int[n];
+        int[] stack = new int[n], next = new int[n];
+        int top = 0, time = 0;
+        stack[0] = 0;
+        next[0] = firstChild[0];
+        enter[0] = time++;
+        while (top >= 0)
+        {
+            int x = stack[top];
+            if (next[x] < firstChild[x + 1])
+            {
+                int c = children[next[x]++];
+                enter[c] = time++;
+                next[c] = firstChild[c];
+                stack[++top] = c;
+            }
+            else
+            {
+                exit[x] = time;
+                top--;
+            }
+        }
+    }
+
+    private boolean isAncestor(int x, int y)
+    {
+        return enter[x] <= enter[y] && enter[y] < exit[x];
+    }
+
+    private long reducedCost(Edge e)
+    {
+        return e.cost - e.from.getPotential() + e.to.getPotential();
+    }
+
+    // the state of an edge outside the tree: 1 lower, -1 upper, 0 fixed
+    private static int state(Edge e, long reducedCost)
+    {
+        if (e.flow == e.lowerCapacity && (e.flow != e.upperCapacity || reducedCost >= 0))
+            return 1;
+        if (e.flow == e.upperCapacity)
+            return -1;
+        return 0;
+    }
+
+    private void analyzeCosts(Graph graph, boolean[] isTreeEdge)
+    {
+        int m = graph.getNumberOfEdges(), n = vertices.length;
+        // the edges which limit tree edges and their slacks
+        int[] limiting = new int[m];
+        long[] slack = new long[m];
+        int count = 0;
+        for (int i = 0; i < m; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            minCost[i] = UNBOUNDED_BELOW;
+            maxCost[i] = UNBOUNDED_ABOVE;
+            if (isTreeEdge[i] || e.lowerCapacity == e.upperCapacity)
+                continue;
+
+            long rc = reducedCost(e);
+            if (rc >= 0 && e.flow == e.lowerCapacity)
+                minCost[i] = e.cost - rc;
+            else if (rc <= 0 && e.flow == e.upperCapacity)
+                maxCost[i] = e.cost - rc;
+            else
+                continue;
+            limiting[count] = i;
+            slack[count++] = Math.abs(rc);
+        }
+
+        /*
+         * The tightest limit first, so each tree edge is limited only once.
+         * The slacks may take up to 64 bits, so the edges are sorted by the
+         * rank of their slack and then by their position, both packed into a
+         * single key, which is positive as both are below 2^31.
+         */
+        long[] limits = Arrays.copyOf(slack, count);
+        Arrays.sort(limits);
+        int shift = 32 - Integer.numberOfLeadingZeros(m);
+        long mask = (1L << shift) - 1;
+        long[] order = new long[count];
+        for (int k = 0; k < count; k++)
+            order[k] = (long) Arrays.binarySearch(limits, slack[k]) << shift | limiting[k];
+        Arrays.sort(order);
+
+        /*
+         * Increasing the cost of a tree edge by d changes the reduced cost of
+         * an edge whose cycle contains the tree edge by +d if the tree edge is
+         * oriented like the edge within the cycle, else by -d. The first
+         * channel collects the limits on the path from the target of an edge
+         * at its lower bound, or from the origin of an edge at its upper
+         * bound, to the apex of the cycle, the second channel the other path.
+         * Upward tree edges within the first channel are limited in their
+         * decrease, downward ones in their increase, and vice versa within the
+         * second channel.
+         */
+        long[] first = new long[n], second = new long[n];
+        Arrays.fill(first, UNBOUNDED_ABOVE);
+        Arrays.fill(second, UNBOUNDED_ABOVE);
+        int[] firstLink = identity(n), secondLink = identity(n);
+        for (int k = 0; k < count; k++)
+        {
+            Edge e = graph.edgeAt((int) (order[k] & mask));
+            int from = index[e.from.ID + 1], to = index[e.to.ID + 1];
+            long limit = limits[(int) (order[k] >>> shift)];
+            if (e.flow == e.lowerCapacity)
+            {
+                limitPath(to, from, limit, first, firstLink);
+                limitPath(from, to, limit, second, secondLink);
+            }
+            else
+            {
+                limitPath(from, to, limit, first, firstLink);
+                limitPath(to, from, limit, second, secondLink);
+            }
+        }
+
+        for (int x = 1; x < n; x++)
+        {
+            Edge e = vertices[x].getTreeEdge();
+            if (e.getIndex() < 0)
+                continue;
+            long decrease = upward[x] ? first[x] : second[x];
+            long increase = upward[x] ? second[x] : first[x];
+            if (decrease != UNBOUNDED_ABOVE)
+                minCost[e.getIndex()] = e.cost - decrease;
+            if (increase != UNBOUNDED_ABOVE)
+                maxCost[e.getIndex()] = e.cost + increase;
+        }
+    }
+
+    private static int[] identity(int n)
+    {
+        int[] link = new int[n];
+        for (int x = 0; x < n; x++)
+            link[x] = x;
+        return link;
+    }
+
+    // the nearest ancestor of x, x included, whose tree edge is not limited
+    private static int find(int[] link, int x)
+    {
+        while (link[x] != x)
+        {
+            link[x] = link[link[x]];
+            x = link[x];
+        }
+        return x;
+    }
+
+    // limits the tree edges from x up to the apex of the cycle through y
+    private void limitPath(int x, int y, long limit, long[] limits, int[] link)
+    {
+        for (x = find(link, x); !isAncestor(x, y); x = find(link, parent[x]))
+        {
+            limits[x] = limit;
+            link[x] = parent[x];
+        }
+    }
+
+    private void analyzeCapacities(Graph graph, boolean[] isTreeEdge)
+    {
+        int m = graph.getNumberOfEdges(), n = vertices.length;
+        // the edges at their upper bound, whose capacity range is limited
+        int[] limited = new int[m];
+        int count = 0;
+        for (int i = 0; i < m; i++)
+        {
+            Edge e = graph.edgeAt(i);
+            minCapacity[i] = Math.max(e.flow, e.lowerCapacity);
+            maxCapacity[i] = UNBOUNDED_ABOVE;
+            if (!isTreeEdge[i] && state(e, reducedCost(e)) == -1)
+                limited[count++] = i;
+        }
+        int[] order = new int[n];
+        for (int x = 0; x < n; x++)
+            order[enter[x]] = x;
+        int[] apex = findApexes(graph, limited, count, order);
+
+        /*
+         * The flow moves around the cycle in orientation of the edge if its
+         * capacity increases, and against it if the capacity decreases.
+         * The cycle leads from the target of the edge up to the apex and
+         * down to its origin, so the increase is limited by the residual
+         * capacities towards the root on the first path and away from it on
+         * the second one, and the decrease the other way round.
+         */
+        long[] up = new long[n], down = new long[n];
+        for (int x = 1; x < n; x++)
+        {
+            Edge t = vertices[x].getTreeEdge();
+            // artificial edges must not carry flow
+            if (t.getIndex() < 0)
+                continue;
+            long forward = (long) t.upperCapacity - t.flow, backward = (long) t.flow - t.lowerCapacity;
+            up[x] = upward[x] ? forward : backward;
+            down[x] = upward[x] ? backward : forward;
+        }
+
+        int[] start = new int[n + 1];
+        int[] sorted = bucket(apex, count, start);
+        int[] link = identity(n), path = new int[n];
+        // all descendants of a vertex are linked to it before it is reached
+        for (int k = n - 1; k >= 0; k--)
+        {
+            int a = order[k];
+            for (int q = start[a]; q < start[a + 1]; q++)
+            {
+                int i = limited[sorted[q]];
+                Edge e = graph.edgeAt(i);
+                int from = index[e.from.ID + 1], to = index[e.to.ID + 1];
+                compress(link, up, down, path, from);
+                compress(link, up, down, path, to);
+                long increase = UNBOUNDED_ABOVE, decrease = (long) e.flow - e.lowerCapacity;
+                if (to != a)
+                {
+                    increase = Math.min(increase, up[to]);
+                    decrease = Math.min(decrease, down[to]);
+                }
+                if (from != a)
+                {
+                    increase = Math.min(increase, down[from]);
+                    decrease = Math.min(decrease, up[from]);
+                }
+                minCapacity[i] = e.flow - decrease;
+                if (increase != UNBOUNDED_ABOVE)
+                    maxCapacity[i] = e.flow + increase;
+            }
+            if (a != 0)
+                link[a] = parent[a];
+        }
+    }
+
+    /*
+     * Finds the apex of the cycle of each limited edge by the offline lowest
+     * common ancestor algorithm of Tarjan. Each edge is visited at the end
+     * which comes later in preorder, where the other end is linked to its
+     * nearest ancestor whose subtree is not complete yet, which is the apex.
+     */
+    private int[] findApexes(Graph graph, int[] limited, int count, int[] order)
+    {
+        int n = vertices.length;
+        int[] later = new int[count], earlier = new int[count];
+        for (int q = 0; q < count; q++)
+        {
+            Edge e = graph.edgeAt(limited[q]);
+            int from = index[e.from.ID + 1], to = index[e.to.ID + 1];
+            later[q] = enter[from] >= enter[to] ? from : to;
+            earlier[q] = enter[from] >= enter[to] ? to : from;
+        }
+        int[] start = new int[n + 1];
+        int[] sorted = bucket(later, count, start);
+
+        int[] apex = new int[count];
+        int[] link = identity(n);
+        int previous = 0;
+        for (int k = 0; k < n; k++)
+        {
+            int y = order[k];
+            // the subtrees which are complete join their parents
+            for (int x = previous; !isAncestor(x, y); x = parent[x])
+                link[x] = parent[x];
+            for (int q = start[y]; q < start[y + 1]; q++)
+                apex[sorted[q]] = find(link, earlier[sorted[q]]);
+            previous = y;
+        }
+        return apex;
+    }
+
+    // orders the positions below count by their keys, the positions with key
+    // x start at start[x] within the returned order
+    private static int[] bucket(int[] keys, int count, int[] start)
+    {
+        for (int q = 0; q < count; q++)
+            start[keys[q] + 1]++;
+        for (int x = 1; x < start.length; x++)
+            start[x] += start[x - 1];
+        int[] sorted = new int[count];
+        int[] fill = Arrays.copyOf(start, start.length - 1);
+        for (int q = 0; q < count; q++)
+            sorted[fill[keys[q]]++] = q;
+        return sorted;
+    }
+
+    /*
+     * Links x and the vertices on its path directly to the root of their set,
+     * so that afterwards the minima of x cover the whole path from x up to the
+     * root, which is returned.
+     */
+    private static int compress(int[] link, long[] up, long[] down, int[] path, int x)
+    {
+        int length = 0;
+        while (link[x] != x)
+        {
+            path[length++] = x;
+            x = link[x];
+        }
+        // the last vertex on the path is linked to the root already
+        for (int k = length - 2; k >= 0; k--)
+        {
+            int y = path[k], z = path[k + 1];
+            up[y] = Math.min(up[y], up[z]);
+            down[y] = Math.min(down[y], down[z]);
+            link[y] = x;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,166 @@
+package nwsimplex.core;
+
+/**
+ * Collects counters and phase timings of a network simplex run. The fields are
+ * plain primitives which are updated by the solver without synchronization, so
+ * a running solve should only be observed through {@link #snapshot()}.
+ *
+ * Metrics are opt-in: a solver without metrics runs a pivot loop that contains
+ * no instrumentation at all, see
+ * {@link AbstractMCFSolver#setMetrics(SolverMetrics)}.
+ *
+ * @author mfj
+ */
+public class SolverMetrics
+{
+
+    /**
+     * the number of performed pivots
+     */
+    long pivots;
+    /**
+     * the number of pivots which did not change the flow
+     */
+    long degeneratePivots;
+    /**
+     * the total number of edges within all pivot cycles, including the
+     * entering edges
+     */
+    long cycleEdges;
+    /**
+     * the total number of vertices re-hung by tree updates
+     */
+    long subtreeVertices;
+    /**
+     * the largest number of vertices re-hung by a single tree update
+     */
+    long maxSubtreeSize;
+    /**
+     * the accumulated time of the phases in nanoseconds
+     */
+    long pricingNanos, cycleNanos, augmentNanos, updateNanos;
+
+    /**
+     * Resets all counters and timings to zero.
+     */
+    public void reset()
+    {
+        pivots = degeneratePivots = cycleEdges = subtreeVertices = maxSubtreeSize = 0;
+        pricingNanos = cycleNanos = augmentNanos = updateNanos = 0;
+    }
+
+    /**
+     * Creates an immutable copy of the current values.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot()
+    {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public String toString()
+    {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable copy of the metrics at a certain point in time.
+     */
+    public static class Snapshot
+    {
+
+        private final long pivots, degeneratePivots, cycleEdges, subtreeVertices, maxSubtreeSize;
+        private final long pricingNanos, cycleNanos, augmentNanos, updateNanos;
+
+        private Snapshot(SolverMetrics m)
+        {
+            pivots = m.pivots;
+            degeneratePivots = m.degeneratePivots;
+            cycleEdges = m.cycleEdges;
+            subtreeVertices = m.subtreeVertices;
+            maxSubtreeSize = m.maxSubtreeSize;
+            pricingNanos = m.pricingNanos;
+            cycleNanos = m.cycleNanos;
+            augmentNanos = m.augmentNanos;
+            updateNanos = m.updateNanos;
+        }
+
+        public long getPivots()
+        {
+            return pivots;
+        }
+
+        public long getDegeneratePivots()
+        {
+            return degeneratePivots;
+        }
+
+        /**
+         * Gets the average number of edges within a pivot cycle, including the
+         * entering edge.
+         */
+        public double getAverageCycleLength()
+        {
+            return pivots == 0 ? 0 : (double) cycleEdges / pivots;
+        }
+
+        /**
+         * Gets the average number of vertices re-hung by a tree update.
+         */
+        public double getAverageSubtreeSize()
+        {
+            return pivots == 0 ? 0 : (double) subtreeVertices / pivots;
+        }
+
+        public long getMaxSubtreeSize()
+        {
+            return maxSubtreeSize;
+        }
+
+        /**
+         * Gets the time spent searching entering edges in nanoseconds.
+         */
+        public long getPricingNanos()
+        {
+            return pricingNanos;
+        }
+
+        /**
+         * Gets the time spent identifying the cycles and leaving edges in
+         * nanoseconds.
+         */
+        public long getCycleNanos()
+        {
+            return cycleNanos;
+        }
+
+        /**
+         * Gets the time spent augmenting the flow along the cycles in
+         * nanoseconds.
+         */
+        public long getAugmentNanos()
+        {
+            return augmentNanos;
+        }
+
+        /**
+         * Gets the time spent updating the spanning tree in nanoseconds.
+         */
+        public long getUpdateNanos()
+        {
+            return updateNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "pivots=" + pivots + ", degenerate=" + degeneratePivots
+                    + ", avgCycleLength=" + getAverageCycleLength()
+                    + ", avgSubtreeSize=" + getAverageSubtreeSize() + ", maxSubtreeSize=" + maxSubtreeSize
+                    + ", pricing=" + pricingNanos / 1000000 + "ms, cycle=" + cycleNanos / 1000000
+                    + "ms, augment=" + augmentNanos / 1000000 + "ms, update=" + updateNanos / 1000000 + "ms";
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package nwsimplex.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event which exports a {@link SolverMetrics.Snapshot},
+ * so the metrics of a run show up within a recording next to the usual
+ * allocation and GC events. Requires JDK 11 or newer and is therefore compiled
+ * separately from the remaining sources.
+ *
+ * @author mfj
+ */
+@Name("nwsimplex.SolverMetrics")
+@Label("Solver Metrics")
+@Category("Network Simplex")
+@Description("Counters and phase timings of a network simplex run")
+public class SolverMetricsEvent extends Event
+{
+
+    @Label("Pivots")
+    long pivots;
+    @Label("Degenerate Pivots")
+    long degeneratePivots;
+    @Label("Average Cycle Length")
+    double averageCycleLength;
+    @Label("Average Subtree Size")
+    double averageSubtreeSize;
+    @Label("Max Subtree Size")
+    long maxSubtreeSize;
+    @Label("Pricing")
+    @Timespan(Timespan.NANOSECONDS)
+    long pricing;
+    @Label("Cycle Identification")
+    @Timespan(Timespan.NANOSECONDS)
+    long cycle;
+    @Label("Augmentation")
+    @Timespan(Timespan.NANOSECONDS)
+    long augment;
+    @Label("Tree Update")
+    @Timespan(Timespan.NANOSECONDS)
+    long update;
+
+    /**
+     * Commits an event with the values of the snapshot, if the event is
+     * enabled within a running recording.
+     *
+     * @param snapshot the metrics to export
+     */
+    public static void commit(SolverMetrics.Snapshot snapshot)
+    {
+        SolverMetricsEvent event = new SolverMetricsEvent();
+        if (!event.isEnabled())
+            return;
+        event.pivots = snapshot.getPivots();
+        event.degeneratePivots = snapshot.getDegeneratePivots();
+        event.averageCycleLength = snapshot.getAverageCycleLength();
+        event.averageSubtreeSize = snapshot.getAverageSubtreeSize();
+        event.maxSubtreeSize = snapshot.getMaxSubtreeSize();
+        event.pricing = snapshot.getPricingNanos();
+        event.cycle = snapshot.getCycleNanos();
+        event.augment = snapshot.getAugmentNanos();
+        event.update = snapshot.getUpdateNanos();
+        event.commit();
+    }
+}
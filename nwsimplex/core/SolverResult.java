@@ -0,0 +1,90 @@
+package nwsimplex.core;
+
+/**
+ * The outcome of {@link AbstractMCFSolver#solve()}. The flow itself is stored
+ * within the edges of the solved graph.
+ *
+ * The lower bound is derived from the potentials at the time the solver
+ * stopped: for any potentials the cost of every feasible flow is at least
+ * {@code sum of balance * potential} plus, for each edge, its reduced cost
+ * times the lower capacity if the reduced cost is positive or times the upper
+ * capacity if it is negative. It equals the objective once the flow is
+ * optimal.
+ *
+ * @author mfj
+ */
+public class SolverResult
+{
+
+    private final SolverStatus status;
+    private final long pivots;
+    private final boolean feasible;
+    private final long objective;
+    private final long lowerBound;
+
+    SolverResult(SolverStatus status, long pivots, boolean feasible, long objective, long lowerBound)
+    {
+        this.status = status;
+        this.pivots = pivots;
+        this.feasible = feasible;
+        this.objective = objective;
+        this.lowerBound = lowerBound;
+    }
+
+    public SolverStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Gets the number of pivots performed by this solve.
+     */
+    public long getPivots()
+    {
+        return pivots;
+    }
+
+    /**
+     * Tests if the flow within the graph is feasible. A solver which was
+     * stopped early may still route some supply over artificial edges, in
+     * which case the flow is not feasible.
+     */
+    public boolean isFeasible()
+    {
+        return feasible;
+    }
+
+    /**
+     * Gets the cost of the flow within the graph.
+     */
+    public long getObjective()
+    {
+        return objective;
+    }
+
+    /**
+     * Gets the lower bound on the optimal cost given by the potentials.
+     */
+    public long getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * Gets the bound on the distance between the objective and the optimal
+     * cost, which is only meaningful if the flow is feasible.
+     *
+     * @return {@code objective - lowerBound}
+     */
+    public long getGap()
+    {
+        return objective - lowerBound;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "status=" + status + ", pivots=" + pivots + ", feasible=" + feasible + ", objective=" + objective
+                + ", gap=" + getGap();
+    }
+}
@@ -0,0 +1,42 @@
+package nwsimplex.core;
+
+/**
+ * The reason a solver stopped.
+ *
+ * @author mfj
+ */
+public enum SolverStatus
+{
+
+    /**
+     * the flow is optimal
+     */
+    Optimal,
+    /**
+     * no feasible flow exists
+     */
+    Infeasible,
+    /**
+     * the time limit was exceeded
+     */
+    TimeLimit,
+    /**
+     * the pivot limit was reached
+     */
+    PivotLimit,
+    /**
+     * the solve was cancelled by a {@link CancelToken} or by interrupting the
+     * solving thread
+     */
+    Cancelled;
+
+    /**
+     * Tests if the solver stopped before it finished.
+     *
+     * @return true if a limit was exceeded or the solve was cancelled
+     */
+    public boolean isInterrupted()
+    {
+        return this != Optimal && this != Infeasible;
+    }
+}
@@ -0,0 +1,61 @@
+package nwsimplex.core;
+
+import java.util.concurrent.TimeUnit;
+import nwsimplex.graph.Graph;
+
+/**
+ * Chooses a solver by the shape of an instance. Assignment problems are solved
+ * by the {@link AuctionSolver}, all other instances by the
+ * {@link BlockSearchSolver}, which checks their feasibility before it pivots.
+ *
+ * @author mfj
+ */
+public final class Solvers
+{
+
+    private Solvers()
+    {
+    }
+
+    /**
+     * Solves an instance with the most suitable solver and stores the flow
+     * within the edges of the graph.
+     *
+     * @param graph the instance
+     * @return the result of the solver
+     */
+    public static SolverResult solve(Graph graph)
+    {
+        return solve(graph, 0, TimeUnit.NANOSECONDS, -1, null);
+    }
+
+    /**
+     * Solves an instance with the most suitable solver within the given
+     * limits and stores the flow within the edges of the graph. The pivot
+     * limit bounds the bids of the {@link AuctionSolver}.
+     *
+     * @param graph the instance
+     * @param time the time limit or a non positive value for no limit
+     * @param unit the unit of the time
+     * @param pivotLimit the pivot limit or a negative value for no limit
+     * @param cancelToken the token which can cancel the solve or null
+     * @return the result of the solver
+     */
+    public static SolverResult solve(Graph graph, long time, TimeUnit unit, long pivotLimit, CancelToken cancelToken)
+    {
+        if (AuctionSolver.isAssignment(graph))
+        {
+            AuctionSolver solver = new AuctionSolver(graph);
+            solver.setTimeLimit(time, unit);
+            solver.setPivotLimit(pivotLimit);
+            solver.setCancelToken(cancelToken);
+            return solver.solve();
+        }
+        BlockSearchSolver solver = new BlockSearchSolver(graph);
+        solver.setFeasibilityCheck(true);
+        solver.setTimeLimit(time, unit);
+        solver.setPivotLimit(pivotLimit);
+        solver.setCancelToken(cancelToken);
+        return solver.solve();
+    }
+}
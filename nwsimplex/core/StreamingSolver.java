@@ -0,0 +1,659 @@
+package nwsimplex.core;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import nwsimplex.IO.read.FileFormatException;
+import nwsimplex.IO.write.ArcFileWriter;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.GraphBuilder;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * A network simplex solver for instances whose arcs do not fit into memory.
+ * The arcs are kept within an arc file, see {@link ArcFileWriter}, and only
+ * the vertices, the spanning tree and the arcs which once entered the tree are
+ * held in memory. The graph of the solver contains only the vertices, which
+ * carry their netto balances.
+ *
+ * The arcs are priced by the block search rule, which scans the arcs
+ * cyclically and therefore only needs sequential access to the file. A
+ * separate thread reads the file in large chunks through a
+ * {@link FileChannel}, ahead of the pricing, and hands them over by a bounded
+ * queue. An arc outside the tree which was never touched carries its lower
+ * capacity. When an arc enters the tree, an edge is created for it, which is
+ * kept while the arc is within the tree or at its upper capacity, so flow
+ * changes are recorded only for these arcs.
+ *
+ * The touched arcs are kept sorted by their position within the file, so the
+ * pricing finds the touched arcs of a block by a single binary search. The
+ * objective follows from the cost of the lower capacities, which is summed up
+ * by the pass of the constructor, and the touched arcs. The lower bound
+ * involves all arcs and takes a pass over the file. The solver must be
+ * closed to stop the reading thread.
+ *
+ * @author mfj
+ */
+public class StreamingSolver extends AbstractMCFSolver implements Closeable
+{
+
+    /**
+     * the default number of arcs within a chunk read from the file
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    // the number of chunks in flight
+    private static final int NUMBER_OF_CHUNKS = 3;
+    private final Path arcFile;
+    private final FileChannel channel;
+    private final long numberOfArcs;
+    private final int blockSize, chunkSize;
+    private final Vertex[] vertices;
+    private final int maxAbsCost;
+    // the cost of all arcs at their lower capacity
+    private final long lowerCost;
+    // the arcs which are within the tree or at their upper capacity
+    private final TouchedArcs touched = new TouchedArcs();
+    private final Collection<Edge> boundEdges = new BoundArcs();
+    private final BlockingQueue<Chunk> filled, empty;
+    private final Thread reader;
+    // an exception thrown by the reader, rethrown by the pricing
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    // the chunk which is priced and the next arc to price within it
+    private Chunk current;
+    private int next;
+    private long artificialCost = -1;
+
+    /**
+     * Instantiates a new solver with a block size of
+     * {@code sqrt(numberOfArcs)} and the default chunk size.
+     *
+     * @param balances the balance of each vertex, indexed by its id
+     * @param arcFile the arcs, written by an {@link ArcFileWriter}
+     * @throws IOException
+     * @throws FileFormatException if the file is not a valid arc file
+     */
+    public StreamingSolver(int[] balances, Path arcFile) throws IOException, FileFormatException
+    {
+        this(balances, arcFile, 0, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Instantiates a new solver. The constructor takes a pass over the arcs,
+     * which computes the netto balances and validates the arcs.
+     *
+     * @param balances the balance of each vertex, indexed by its id
+     * @param arcFile the arcs, written by an {@link ArcFileWriter}
+     * @param blockSize the number of arcs within a block, or 0 for
+     * {@code sqrt(numberOfArcs)}
+     * @param chunkSize the number of arcs read at once
+     * @throws IOException
+     * @throws FileFormatException if the file is not a valid arc file
+     */
+    public StreamingSolver(int[] balances, Path arcFile, int blockSize, int chunkSize)
+            throws IOException, FileFormatException
+    {
+        this(balances, arcFile, blockSize, chunkSize, new ArcScan(balances.length));
+    }
+
+    private StreamingSolver(int[] balances, Path arcFile, int blockSize, int chunkSize, ArcScan scan)
+            throws IOException, FileFormatException
+    {
+        super(buildGraph(balances, arcFile, chunkSize, scan), new SpanningTree());
+        if (blockSize < 0)
+            throw new IllegalArgumentException();
+        this.arcFile = arcFile;
+        this.numberOfArcs = scan.numberOfArcs;
+        this.maxAbsCost = scan.maxAbsCost;
+        this.lowerCost = scan.lowerCost;
+        this.blockSize = blockSize > 0 ? blockSize : (int) Math.max(1, Math.min(chunkSize, Math.sqrt(numberOfArcs)));
+        this.chunkSize = chunkSize;
+        this.vertices = new Vertex[balances.length];
+        for (int id = 0; id < balances.length; id++)
+            vertices[id] = scan.graph.getVertex(id);
+
+        channel = FileChannel.open(arcFile, StandardOpenOption.READ);
+        filled = new ArrayBlockingQueue<Chunk>(NUMBER_OF_CHUNKS);
+        empty = new ArrayBlockingQueue<Chunk>(NUMBER_OF_CHUNKS);
+        for (int i = 0; i < NUMBER_OF_CHUNKS; i++)
+            empty.add(new Chunk(chunkSize));
+        reader = new Thread("arc-reader")
+        {
+            @Override
+            public void run()
+            {
+                readAhead();
+            }
+        };
+        reader.setDaemon(true);
+        if (numberOfArcs > 0)
+            reader.start();
+    }
+
+    // the vertices carry the netto balances, which follow from a pass over
+    // the arcs
+    private static Graph buildGraph(int[] balances, Path arcFile, int chunkSize, ArcScan scan)
+            throws IOException, FileFormatException
+    {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE / ArcFileWriter.ARC_SIZE)
+            throw new IllegalArgumentException();
+        scan(arcFile, chunkSize, scan);
+        GraphBuilder builder = new GraphBuilder(balances.length, 0);
+        for (int id = 0; id < balances.length; id++)
+        {
+            long balance = balances[id] + scan.lowerCapacity[id];
+            if (balance != (int) balance)
+                throw new FileFormatException("The netto balance of vertex %d exceeds the int range.", id);
+            builder.addVertex(id, (int) balance);
+        }
+        scan.graph = builder.build();
+        return scan.graph;
+    }
+
+    @Override
+    public Collection<Edge> getLowerBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    @Override
+    public Collection<Edge> getUpperBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    /**
+     * Gets the number of arcs within the file.
+     */
+    public long getNumberOfArcs()
+    {
+        return numberOfArcs;
+    }
+
+    @Override
+    public Edge getNextEntering()
+    {
+        long searched = 0;
+        while (searched < numberOfArcs)
+        {
+            if (current == null || next == current.count)
+                nextChunk();
+            ByteBuffer data = current.data;
+            int end = Math.min(current.count, next + blockSize);
+
+            // the touched arcs of the block, in the order of the file
+            int t = touched.ceiling(current.first + next);
+            long touchedPosition = t < touched.size ? touched.positions[t] : Long.MAX_VALUE;
+            long min = 0;
+            int minArc = -1;
+            Arc minTouched = null;
+            for (int i = next; i < end; i++)
+            {
+                int offset = i * ArcFileWriter.ARC_SIZE;
+                int lowerCapacity = data.getInt(offset + 8), upperCapacity = data.getInt(offset + 12);
+                if (lowerCapacity == upperCapacity)
+                    continue;
+                int state = PricingKernel.STATE_LOWER;
+                Arc arc = null;
+                if (touchedPosition == current.first + i)
+                {
+                    arc = touched.arcs[t++];
+                    touchedPosition = t < touched.size ? touched.positions[t] : Long.MAX_VALUE;
+                    if (arc.inTree)
+                        continue;
+                    if (arc.flow == arc.upperCapacity)
+                        state = PricingKernel.STATE_UPPER;
+                }
+                long reducedCost = data.getInt(offset + 16) - vertices[data.getInt(offset)].getPotential()
+                        + vertices[data.getInt(offset + 4)].getPotential();
+                if (state * reducedCost < min)
+                {
+                    min = state * reducedCost;
+                    minArc = i;
+                    minTouched = arc;
+                }
+            }
+
+            searched += end - next;
+            next = end;
+            if (minArc >= 0)
+            {
+                if (minTouched != null)
+                    return minTouched;
+                int offset = minArc * ArcFileWriter.ARC_SIZE;
+                int lowerCapacity = data.getInt(offset + 8);
+                return new Arc(current.first + minArc, lowerCapacity, data.getInt(offset + 16), lowerCapacity,
+                        data.getInt(offset + 12), vertices[data.getInt(offset)], vertices[data.getInt(offset + 4)]);
+            }
+        }
+        return null;
+    }
+
+    // hands the priced chunk back to the reader and takes the next one
+    private void nextChunk()
+    {
+        if (current != null)
+            empty.offer(current);
+        current = null;
+        next = 0;
+        // the pricing has to finish, an interrupt is handled by the solve
+        boolean interrupted = false;
+        while (current == null)
+        {
+            try
+            {
+                current = filled.take();
+            }
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (current == Chunk.END)
+        {
+            current = null;
+            throw new IllegalStateException("Reading the arc file failed.", failure);
+        }
+    }
+
+    // reads the chunks cyclically, the queues block the reader while the
+    // pricing is behind
+    private void readAhead()
+    {
+        try
+        {
+            long first = 0;
+            while (!closed)
+            {
+                Chunk chunk = empty.take();
+                chunk.first = first;
+                chunk.count = (int) Math.min(chunkSize, numberOfArcs - first);
+                read(channel, first, chunk.count, chunk.data);
+                filled.put(chunk);
+                first += chunk.count;
+                if (first == numberOfArcs)
+                    first = 0;
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // this solver was closed
+        }
+        catch (Throwable ex)
+        {
+            if (!closed)
+                failure = ex;
+        }
+        finally
+        {
+            // the pricing never waits for a reader that has stopped
+            filled.clear();
+            filled.offer(Chunk.END);
+        }
+    }
+
+    // reads a number of arcs from a position into a cleared buffer
+    private static void read(FileChannel channel, long first, int count, ByteBuffer data) throws IOException
+    {
+        data.clear();
+        data.limit(count * ArcFileWriter.ARC_SIZE);
+        long position = ArcFileWriter.HEADER_SIZE + first * ArcFileWriter.ARC_SIZE;
+        while (data.hasRemaining())
+            if (channel.read(data, position + data.position()) < 0)
+                throw new EOFException("Unexpected end of the arc file.");
+    }
+
+    /**
+     * Takes a pass over the file, which is opened separately from the file
+     * read by the pricing.
+     */
+    private static void scan(Path arcFile, int chunkSize, ArcVisitor visitor) throws IOException
+    {
+        // an interrupt would close the channel, it is restored afterwards
+        boolean interrupted = Thread.interrupted();
+        try (FileChannel in = FileChannel.open(arcFile, StandardOpenOption.READ))
+        {
+            ByteBuffer data = ByteBuffer.allocate(Math.max(ArcFileWriter.HEADER_SIZE,
+                    chunkSize * ArcFileWriter.ARC_SIZE)).order(ArcFileWriter.BYTE_ORDER);
+            data.limit(ArcFileWriter.HEADER_SIZE);
+            while (data.hasRemaining())
+                if (in.read(data, data.position()) < 0)
+                    throw new EOFException("The arc file has no header.");
+            long arcs = data.getLong(8);
+            if (data.getInt(0) != ArcFileWriter.MAGIC || data.getInt(4) != ArcFileWriter.VERSION || arcs < 0
+                    || in.size() != ArcFileWriter.HEADER_SIZE + arcs * ArcFileWriter.ARC_SIZE)
+                throw new FileFormatException("The file is not a valid arc file.");
+            visitor.begin(arcs);
+
+            for (long first = 0; first < arcs; first += chunkSize)
+            {
+                int count = (int) Math.min(chunkSize, arcs - first);
+                read(in, first, count, data);
+                for (int i = 0; i < count; i++)
+                {
+                    int offset = i * ArcFileWriter.ARC_SIZE;
+                    visitor.visit(first + i, data.getInt(offset), data.getInt(offset + 4), data.getInt(offset + 8),
+                            data.getInt(offset + 12), data.getInt(offset + 16));
+                }
+            }
+        }
+        finally
+        {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    // takes a pass over the file of this solver, whose validity is known
+    private void scan(ArcVisitor visitor)
+    {
+        try
+        {
+            scan(arcFile, chunkSize, visitor);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException("Reading the arc file failed.", ex);
+        }
+    }
+
+    /**
+     * Gets the flow on an arc.
+     *
+     * @param arc the number of the arc within the file
+     * @return the flow
+     */
+    public int getFlow(long arc)
+    {
+        int t = touched.ceiling(arc);
+        if (t < touched.size && touched.positions[t] == arc)
+            return touched.arcs[t].flow;
+        if (arc < 0 || arc >= numberOfArcs)
+            throw new IndexOutOfBoundsException();
+        // an untouched arc carries its lower capacity
+        ByteBuffer data = ByteBuffer.allocate(ArcFileWriter.ARC_SIZE).order(ArcFileWriter.BYTE_ORDER);
+        boolean interrupted = Thread.interrupted();
+        try (FileChannel in = FileChannel.open(arcFile, StandardOpenOption.READ))
+        {
+            read(in, arc, 1, data);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException("Reading the arc file failed.", ex);
+        }
+        finally
+        {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        return data.getInt(8);
+    }
+
+    /**
+     * Gets the arcs which carry more than their lower capacity or are within
+     * the tree, all other arcs carry their lower capacity. The position of an
+     * arc within the file is given by {@link Arc#getPosition()}.
+     *
+     * @return the touched arcs in the order of the file
+     */
+    public Collection<Arc> getTouchedArcs()
+    {
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(touched.arcs, touched.size)));
+    }
+
+    /**
+     * Gets the cost of the artificial edges, which is derived from the largest
+     * absolute cost of all arcs, found by the pass of the constructor.
+     */
+    @Override
+    protected long getArtificialCost()
+    {
+        if (artificialCost < 0)
+            artificialCost = artificialCost(vertices.length, maxAbsCost);
+        return artificialCost;
+    }
+
+    /**
+     * Gets the cost of the flow, which only differs from the cost of the lower
+     * capacities on the touched arcs.
+     */
+    @Override
+    public long getObjective()
+    {
+        long objective = lowerCost;
+        for (int t = 0; t < touched.size; t++)
+        {
+            Arc arc = touched.arcs[t];
+            objective += arc.cost * (arc.flow - arc.lowerCapacity);
+        }
+        return objective;
+    }
+
+    /**
+     * Gets the lower bound on the optimal cost given by the potentials, which
+     * takes a pass over the file. The balances of the vertices are their netto
+     * balances, so the lower capacities are accounted for separately.
+     */
+    @Override
+    public long getLowerBound()
+    {
+        final long[] bound = new long[1];
+        for (Vertex v : vertices)
+            bound[0] += (long) v.getBalance() * v.getPotential();
+        scan(new ArcVisitor()
+        {
+            @Override
+            void visit(long arc, int from, int to, int lowerCapacity, int upperCapacity, int cost)
+            {
+                long reducedCost = (long) cost - vertices[from].getPotential() + vertices[to].getPotential();
+                bound[0] += (long) cost * lowerCapacity;
+                if (reducedCost < 0)
+                    bound[0] += reducedCost * ((long) upperCapacity - lowerCapacity);
+            }
+        });
+        return bound[0];
+    }
+
+    /**
+     * Stops the reading thread and closes the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        closed = true;
+        reader.interrupt();
+        channel.close();
+    }
+
+    /**
+     * An arc which entered the tree at least once.
+     */
+    public static class Arc extends Edge
+    {
+
+        private final long position;
+        private boolean inTree;
+
+        Arc(long position, int flow, int cost, int lowerCapacity, int upperCapacity, Vertex from, Vertex to)
+        {
+            super(flow, cost, lowerCapacity, upperCapacity, from, to);
+            this.position = position;
+        }
+
+        /**
+         * Gets the number of this arc within the file.
+         */
+        public long getPosition()
+        {
+            return position;
+        }
+    }
+
+    /**
+     * Records the arcs which enter and leave the tree. An arc which leaves the
+     * tree at its lower capacity is dropped, since it does not differ from an
+     * untouched arc. Artificial edges are not stored.
+     */
+    private class BoundArcs extends AbstractCollection<Edge>
+    {
+
+        // called for the leaving edge
+        @Override
+        public boolean add(Edge e)
+        {
+            if (!(e instanceof Arc))
+                return false;
+            Arc arc = (Arc) e;
+            arc.inTree = false;
+            if (arc.flow == arc.lowerCapacity)
+                touched.remove(arc);
+            return true;
+        }
+
+        // called for the entering edge
+        @Override
+        public boolean remove(Object o)
+        {
+            if (!(o instanceof Arc))
+                return false;
+            Arc arc = (Arc) o;
+            arc.inTree = true;
+            touched.add(arc);
+            return true;
+        }
+
+        @Override
+        public Iterator<Edge> iterator()
+        {
+            throw new UnsupportedOperationException("The arcs at their bounds are not stored.");
+        }
+
+        @Override
+        public int size()
+        {
+            throw new UnsupportedOperationException("The arcs at their bounds are not stored.");
+        }
+    }
+
+    // the touched arcs sorted by their position, within parallel arrays
+    private static class TouchedArcs
+    {
+
+        long[] positions = new long[16];
+        Arc[] arcs = new Arc[16];
+        int size;
+
+        // the index of the first arc at or after a position
+        int ceiling(long position)
+        {
+            int index = Arrays.binarySearch(positions, 0, size, position);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        void add(Arc arc)
+        {
+            int index = ceiling(arc.position);
+            if (index < size && positions[index] == arc.position)
+                return;
+            if (size == positions.length)
+            {
+                positions = Arrays.copyOf(positions, 2 * size);
+                arcs = Arrays.copyOf(arcs, 2 * size);
+            }
+            System.arraycopy(positions, index, positions, index + 1, size - index);
+            System.arraycopy(arcs, index, arcs, index + 1, size - index);
+            positions[index] = arc.position;
+            arcs[index] = arc;
+            size++;
+        }
+
+        void remove(Arc arc)
+        {
+            int index = ceiling(arc.position);
+            if (index == size || positions[index] != arc.position)
+                return;
+            size--;
+            System.arraycopy(positions, index + 1, positions, index, size - index);
+            System.arraycopy(arcs, index + 1, arcs, index, size - index);
+            arcs[size] = null;
+        }
+    }
+
+    // a part of the file and the number of arcs within it
+    private static class Chunk
+    {
+
+        static final Chunk END = new Chunk(0);
+        final ByteBuffer data;
+        long first;
+        int count;
+
+        Chunk(int size)
+        {
+            data = ByteBuffer.allocateDirect(size * ArcFileWriter.ARC_SIZE).order(ArcFileWriter.BYTE_ORDER);
+        }
+    }
+
+    // receives the arcs of a pass over the file
+    private static abstract class ArcVisitor
+    {
+
+        void begin(long numberOfArcs)
+        {
+        }
+
+        abstract void visit(long arc, int from, int to, int lowerCapacity, int upperCapacity, int cost);
+    }
+
+    // validates the arcs and collects what the solver needs from them
+    private static class ArcScan extends ArcVisitor
+    {
+
+        final long[] lowerCapacity;
+        Graph graph;
+        long numberOfArcs;
+        int maxAbsCost;
+        long lowerCost;
+
+        ArcScan(int domain)
+        {
+            lowerCapacity = new long[domain];
+        }
+
+        @Override
+        void begin(long numberOfArcs)
+        {
+            this.numberOfArcs = numberOfArcs;
+        }
+
+        @Override
+        void visit(long arc, int from, int to, int lowerCapacity, int upperCapacity, int cost)
+        {
+            if (from < 0 || from >= this.lowerCapacity.length || to < 0 || to >= this.lowerCapacity.length)
+                throw new FileFormatException("Arc %d has an unknown vertex.", arc);
+            if (lowerCapacity > upperCapacity)
+                throw new FileFormatException("Arc %d has a lower capacity above its upper one.", arc);
+            this.lowerCapacity[from] -= lowerCapacity;
+            this.lowerCapacity[to] += lowerCapacity;
+            maxAbsCost = Math.max(maxAbsCost, Math.abs(cost));
+            lowerCost += (long) cost * lowerCapacity;
+        }
+    }
+}
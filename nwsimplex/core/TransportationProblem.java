@@ -0,0 +1,109 @@
+package nwsimplex.core;
+
+/**
+ * A dense transportation problem, in which each source can ship to each sink
+ * along an uncapacitated arc. The arcs are not stored, their costs are given
+ * by a cost matrix or by a {@link CostFunction}, so the problem takes at most
+ * one int per arc. Sources and sinks are numbered from zero. Supplies and
+ * demands must balance, otherwise the problem is infeasible.
+ *
+ * @author mfj
+ */
+public class TransportationProblem
+{
+
+    /**
+     * The cost of shipping a unit from a source to a sink. The function must
+     * always return the same cost for the same arc.
+     */
+    public interface CostFunction
+    {
+
+        int getCost(int source, int sink);
+    }
+    private final int[] supply, demand;
+    // the row major cost matrix, or null if the costs are given by a function
+    private final int[] matrix;
+    private final CostFunction function;
+
+    /**
+     * Instantiates a problem whose costs are computed by a function.
+     *
+     * @param supply the supply of each source
+     * @param demand the demand of each sink
+     * @param function the cost of each arc
+     */
+    public TransportationProblem(int[] supply, int[] demand, CostFunction function)
+    {
+        this(supply, demand, null, function);
+    }
+
+    /**
+     * Instantiates a problem whose costs are stored within a matrix, which is
+     * not copied.
+     *
+     * @param supply the supply of each source
+     * @param demand the demand of each sink
+     * @param matrix the cost of the arc from source {@code i} to sink
+     * {@code j} at {@code i * demand.length + j}
+     */
+    public TransportationProblem(int[] supply, int[] demand, int[] matrix)
+    {
+        this(supply, demand, matrix, null);
+        if (matrix.length != (long) supply.length * demand.length)
+            throw new IllegalArgumentException("The cost matrix must have one entry per arc.");
+    }
+
+    private TransportationProblem(int[] supply, int[] demand, int[] matrix, CostFunction function)
+    {
+        for (int s : supply)
+            if (s < 0)
+                throw new IllegalArgumentException("Negative supply.");
+        for (int d : demand)
+            if (d < 0)
+                throw new IllegalArgumentException("Negative demand.");
+        this.supply = supply;
+        this.demand = demand;
+        this.matrix = matrix;
+        this.function = function;
+    }
+
+    public int getNumberOfSources()
+    {
+        return supply.length;
+    }
+
+    public int getNumberOfSinks()
+    {
+        return demand.length;
+    }
+
+    /**
+     * Gets the number of arcs, which is the number of sources times the
+     * number of sinks.
+     */
+    public long getNumberOfArcs()
+    {
+        return (long) supply.length * demand.length;
+    }
+
+    public int getSupply(int source)
+    {
+        return supply[source];
+    }
+
+    public int getDemand(int sink)
+    {
+        return demand[sink];
+    }
+
+    /**
+     * Gets the cost of the arc from a source to a sink.
+     */
+    public final int getCost(int source, int sink)
+    {
+        if (matrix != null)
+            return matrix[source * demand.length + sink];
+        return function.getCost(source, sink);
+    }
+}
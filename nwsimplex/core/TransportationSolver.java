@@ -0,0 +1,280 @@
+package nwsimplex.core;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import nwsimplex.graph.Edge;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.GraphBuilder;
+import nwsimplex.graph.SpanningTree;
+import nwsimplex.graph.Vertex;
+
+/**
+ * A network simplex solver for dense {@link TransportationProblem}s, whose
+ * arcs are never stored. The graph of the solver contains only the sources
+ * and sinks. Since all arcs are uncapacitated, an arc outside the spanning
+ * tree always carries no flow, so only the arcs of the tree exist as edges:
+ * the pricing computes the reduced costs from the costs and the potentials,
+ * creates an edge for the entering arc, and the edge is dropped once it leaves
+ * the tree again. The memory besides the costs is linear in the number of
+ * sources and sinks.
+ *
+ * The arcs are searched with the block search pricing rule, in row major
+ * order.
+ *
+ * @author mfj
+ */
+public class TransportationSolver extends AbstractMCFSolver
+{
+
+    private final TransportationProblem problem;
+    private final Vertex[] sources, sinks;
+    private final long numberOfArcs;
+    private final int blockSize;
+    private final Collection<Edge> boundEdges = new ImplicitEdges();
+    // the next arc to price
+    private int nextSource = 0, nextSink = 0;
+    private long artificialCost = -1;
+
+    /**
+     * Instantiates a new solver with a block size of {@code sqrt(numberOfArcs)}.
+     *
+     * @param problem the problem to solve
+     */
+    public TransportationSolver(TransportationProblem problem)
+    {
+        this(problem, (int) Math.max(1, Math.sqrt(problem.getNumberOfArcs())));
+    }
+
+    /**
+     * Instantiates a new solver.
+     *
+     * @param problem the problem to solve
+     * @param blockSize the number of arcs within a block
+     */
+    public TransportationSolver(TransportationProblem problem, int blockSize)
+    {
+        this(problem, blockSize, buildGraph(problem));
+    }
+
+    private TransportationSolver(TransportationProblem problem, int blockSize, Graph graph)
+    {
+        super(graph, new SpanningTree());
+        if (blockSize < 1)
+            throw new IllegalArgumentException();
+        this.problem = problem;
+        this.numberOfArcs = problem.getNumberOfArcs();
+        this.blockSize = blockSize;
+        int m = problem.getNumberOfSources(), n = problem.getNumberOfSinks();
+        sources = new Vertex[m];
+        sinks = new Vertex[n];
+        for (int i = 0; i < m; i++)
+            sources[i] = graph.getVertex(i);
+        for (int j = 0; j < n; j++)
+            sinks[j] = graph.getVertex(m + j);
+    }
+
+    // sources have the id's 0 to m - 1, sinks m to m + n - 1
+    private static Graph buildGraph(TransportationProblem problem)
+    {
+        int m = problem.getNumberOfSources(), n = problem.getNumberOfSinks();
+        GraphBuilder builder = new GraphBuilder(m + n, 0);
+        for (int i = 0; i < m; i++)
+            builder.addVertex(i, problem.getSupply(i));
+        for (int j = 0; j < n; j++)
+            builder.addVertex(m + j, -problem.getDemand(j));
+        return builder.build();
+    }
+
+    @Override
+    public Collection<Edge> getLowerBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    @Override
+    public Collection<Edge> getUpperBoundEdges()
+    {
+        return boundEdges;
+    }
+
+    @Override
+    public Edge getNextEntering()
+    {
+        if (numberOfArcs == 0)
+            return null;
+        int source = nextSource, sink = nextSink;
+        long sourcePotential = sources[source].getPotential();
+        long searched = 0;
+        while (searched < numberOfArcs)
+        {
+            long min = 0;
+            int minSource = -1, minSink = -1;
+            for (int k = 0; k < blockSize; k++)
+            {
+                long reducedCost = problem.getCost(source, sink) - sourcePotential + sinks[sink].getPotential();
+                if (reducedCost < min)
+                {
+                    min = reducedCost;
+                    minSource = source;
+                    minSink = sink;
+                }
+                if (++sink == sinks.length)
+                {
+                    sink = 0;
+                    if (++source == sources.length)
+                        source = 0;
+                    sourcePotential = sources[source].getPotential();
+                }
+            }
+
+            searched += blockSize;
+            if (minSource >= 0)
+            {
+                nextSource = source;
+                nextSink = sink;
+                return new Edge(0, problem.getCost(minSource, minSink), 0, Integer.MAX_VALUE,
+                        sources[minSource], sinks[minSink]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the cost of the artificial edges, which is derived from the largest
+     * absolute cost of all arcs, computed once by a pass over the arcs.
+     */
+    @Override
+    protected long getArtificialCost()
+    {
+        if (artificialCost < 0)
+        {
+            long maxAbsoluteCost = 0;
+            for (int i = 0; i < sources.length; i++)
+                for (int j = 0; j < sinks.length; j++)
+                    maxAbsoluteCost = Math.max(maxAbsoluteCost, Math.abs((long) problem.getCost(i, j)));
+            artificialCost = artificialCost((long) sources.length + sinks.length, maxAbsoluteCost);
+        }
+        return artificialCost;
+    }
+
+    /**
+     * Gets the flow from a source to a sink.
+     *
+     * @param source the index of the source
+     * @param sink the index of the sink
+     * @return the flow, which is zero unless the arc is within the tree
+     */
+    public int getFlow(int source, int sink)
+    {
+        // a tree arc is the tree edge of either of its vertices
+        Edge e = sinks[sink].getTreeEdge();
+        if (e != null && e.from == sources[source])
+            return e.flow;
+        e = sources[source].getTreeEdge();
+        if (e != null && e.to == sinks[sink])
+            return e.flow;
+        return 0;
+    }
+
+    /**
+     * Gets the arcs of the spanning tree, which are the only arcs that may
+     * carry flow. The source of an arc is {@code from.ID}, its sink
+     * {@code to.ID - numberOfSources}.
+     *
+     * @return the edges of the tree arcs
+     */
+    public List<Edge> getTreeArcs()
+    {
+        List<Edge> arcs = new ArrayList<Edge>(sources.length + sinks.length);
+        addTreeArcs(sources, arcs);
+        addTreeArcs(sinks, arcs);
+        return arcs;
+    }
+
+    // adds the tree edges of the vertices which are not artificial
+    private static void addTreeArcs(Vertex[] vertices, List<Edge> arcs)
+    {
+        for (Vertex v : vertices)
+        {
+            Edge e = v.getTreeEdge();
+            if (e != null && e.from.ID >= 0 && e.to.ID >= 0)
+                arcs.add(e);
+        }
+    }
+
+    /**
+     * Gets the cost of the flow, the sum of cost times flow over the tree
+     * arcs.
+     */
+    @Override
+    public long getObjective()
+    {
+        long objective = 0;
+        for (Edge e : getTreeArcs())
+            objective += e.cost * e.flow;
+        return objective;
+    }
+
+    /**
+     * Gets the lower bound on the optimal cost given by the potentials. The
+     * flow on an arc is at most the smaller of the supply of its source and
+     * the demand of its sink, which bounds the contribution of the arcs with
+     * negative reduced cost. This takes a pass over all arcs.
+     */
+    @Override
+    public long getLowerBound()
+    {
+        long bound = 0;
+        for (Vertex v : sources)
+            bound += (long) v.getBalance() * v.getPotential();
+        for (Vertex v : sinks)
+            bound += (long) v.getBalance() * v.getPotential();
+        for (int i = 0; i < sources.length; i++)
+        {
+            long sourcePotential = sources[i].getPotential();
+            for (int j = 0; j < sinks.length; j++)
+            {
+                long reducedCost = problem.getCost(i, j) - sourcePotential + sinks[j].getPotential();
+                if (reducedCost < 0)
+                    bound += reducedCost * Math.min(problem.getSupply(i), problem.getDemand(j));
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * The arcs at their lower bound, which are all arcs outside the tree and
+     * therefore not stored. Edges which leave the tree are dropped.
+     */
+    private static class ImplicitEdges extends AbstractCollection<Edge>
+    {
+
+        @Override
+        public boolean add(Edge e)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return false;
+        }
+
+        @Override
+        public Iterator<Edge> iterator()
+        {
+            return Collections.<Edge>emptyList().iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return 0;
+        }
+    }
+}
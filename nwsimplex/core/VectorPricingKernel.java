@@ -0,0 +1,81 @@
+package nwsimplex.core;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A pricing kernel which computes the reduced costs of a whole vector of edges
+ * at once, gathering the potentials of the incident vertices. The reduced
+ * costs are computed in long lanes, the int columns are loaded with half the
+ * vector size and widened. The per lane minimum and its edge index are tracked
+ * within vectors and reduced after the loop, the remaining edges are tested by
+ * the scalar loop.
+ *
+ * This class requires JDK 16 or newer and is compiled separately with
+ * {@code --add-modules jdk.incubator.vector}. It is loaded reflectively by
+ * {@link PricingKernel#getInstance()}, so the rest of the solver does not
+ * depend on it.
+ *
+ * @author mfj
+ */
+public class VectorPricingKernel extends PricingKernel
+{
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    // the int columns are loaded with as many lanes as a long vector has
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+    private static final LongVector IOTA = LongVector.zero(SPECIES).addIndex(1);
+
+    @Override
+    public int findMostViolating(int[] cost, int[] from, int[] to, int[] state, long[] potential,
+            int begin, int end)
+    {
+        int length = SPECIES.length();
+        int upperBound = begin + SPECIES.loopBound(end - begin);
+
+        LongVector minViolation = LongVector.zero(SPECIES);
+        LongVector minEdge = LongVector.broadcast(SPECIES, -1);
+        int e = begin;
+        for (; e < upperBound; e += length)
+        {
+            LongVector reducedCost = widen(IntVector.fromArray(INT_SPECIES, cost, e))
+                    .sub(LongVector.fromArray(SPECIES, potential, 0, from, e))
+                    .add(LongVector.fromArray(SPECIES, potential, 0, to, e));
+            LongVector violation = reducedCost.mul(widen(IntVector.fromArray(INT_SPECIES, state, e)));
+
+            VectorMask<Long> smaller = violation.lt(minViolation);
+            minViolation = minViolation.blend(violation, smaller);
+            minEdge = minEdge.blend(IOTA.add(e), smaller);
+        }
+
+        // reduce the lanes, ties are broken by the smallest edge index
+        long min = minViolation.reduceLanes(VectorOperators.MIN);
+        int best = -1;
+        if (min < 0)
+        {
+            VectorMask<Long> isMin = minViolation.eq(min);
+            best = (int) minEdge.reduceLanes(VectorOperators.MIN, isMin);
+        }
+
+        for (; e < end; e++)
+        {
+            long violation = state[e] * (cost[e] - potential[from[e]] + potential[to[e]]);
+            if (violation < min)
+            {
+                min = violation;
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    private static LongVector widen(IntVector v)
+    {
+        return (LongVector) v.convertShape(VectorOperators.I2L, SPECIES, 0);
+    }
+}
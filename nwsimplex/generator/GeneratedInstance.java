@@ -0,0 +1,169 @@
+package nwsimplex.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import nwsimplex.IO.read.ParserGraph;
+import nwsimplex.graph.Graph;
+import nwsimplex.graph.GraphBuilder;
+
+/**
+ * A min-cost-flow instance created by an {@link InstanceGenerator}. The
+ * instance is stored column wise and can be turned into any number of graphs
+ * or written to a .net file. Vertex id's range from 1 to the number of
+ * vertices, as within the DIMACS format.
+ *
+ * @author mfj
+ */
+public class GeneratedInstance
+{
+
+    private final int numberOfVertices;
+    private final int[] balance;
+    private final int[] from, to, lowerCapacity, upperCapacity, cost;
+    private int numberOfEdges = 0;
+
+    GeneratedInstance(int numberOfVertices, int numberOfEdges)
+    {
+        this.numberOfVertices = numberOfVertices;
+        this.balance = new int[numberOfVertices + 1];
+        this.from = new int[numberOfEdges];
+        this.to = new int[numberOfEdges];
+        this.lowerCapacity = new int[numberOfEdges];
+        this.upperCapacity = new int[numberOfEdges];
+        this.cost = new int[numberOfEdges];
+    }
+
+    void addSupply(int id, int supply)
+    {
+        balance[id] += supply;
+    }
+
+    void addEdge(int fromId, int toId, int capacity, int cost)
+    {
+        int e = numberOfEdges++;
+        this.from[e] = fromId;
+        this.to[e] = toId;
+        this.upperCapacity[e] = capacity;
+        this.cost[e] = cost;
+    }
+
+    public int getNumberOfVertices()
+    {
+        return numberOfVertices;
+    }
+
+    public int getNumberOfEdges()
+    {
+        return numberOfEdges;
+    }
+
+    /**
+     * Gets the balance of a vertex.
+     *
+     * @param id a vertex id between 1 and the number of vertices
+     */
+    public int getBalance(int id)
+    {
+        return balance[id];
+    }
+
+    /**
+     * Gets a copy of the edge origins.
+     */
+    public int[] getFrom()
+    {
+        return Arrays.copyOf(from, numberOfEdges);
+    }
+
+    /**
+     * Gets a copy of the edge targets.
+     */
+    public int[] getTo()
+    {
+        return Arrays.copyOf(to, numberOfEdges);
+    }
+
+    /**
+     * Gets a copy of the edge costs.
+     */
+    public int[] getCost()
+    {
+        return Arrays.copyOf(cost, numberOfEdges);
+    }
+
+    /**
+     * Builds a new graph from this instance. The edges get handles in the
+     * order they were generated.
+     *
+     * @return the new graph
+     */
+    public Graph toGraph()
+    {
+        GraphBuilder builder = new GraphBuilder(numberOfVertices + 1, numberOfEdges);
+        for (int id = 1; id <= numberOfVertices; id++)
+            builder.addVertex(id, balance[id]);
+        builder.addEdges(from, to, lowerCapacity, upperCapacity, cost, 0, numberOfEdges);
+        return builder.build();
+    }
+
+    /**
+     * Writes this instance in the .net format, which can be read by
+     * {@link nwsimplex.IO.read.ParserGraphImpl}. The file is compressed if its
+     * name ends with {@value ParserGraph#GZIP_EXTENSION}.
+     *
+     * @param path the file to write
+     * @throws IOException
+     */
+    public void write(Path path) throws IOException
+    {
+        try (OutputStream out = Files.newOutputStream(path))
+        {
+            if (path.getFileName().toString().endsWith(ParserGraph.GZIP_EXTENSION))
+            {
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 16);
+                write(gzip);
+                gzip.finish();
+            }
+            else
+                write(out);
+        }
+    }
+
+    /**
+     * Writes this instance in the .net format. The stream is flushed, but not
+     * closed.
+     *
+     * @param out the stream to write to
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+        StringBuilder line = new StringBuilder(64);
+        line.append("p min ").append(numberOfVertices).append(' ').append(numberOfEdges).append('\n');
+        writer.append(line);
+        for (int id = 1; id <= numberOfVertices; id++)
+        {
+            line.setLength(0);
+            line.append("n ").append(id).append(' ').append(balance[id]).append('\n');
+            writer.append(line);
+        }
+        for (int e = 0; e < numberOfEdges; e++)
+        {
+            line.setLength(0);
+            line.append("a ").append(from[e]).append(' ').append(to[e]).append(' ')
+                    .append(lowerCapacity[e]).append(' ').append(upperCapacity[e]).append(' ')
+                    .append(cost[e]).append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,96 @@
+package nwsimplex.generator;
+
+import java.util.Random;
+
+/**
+ * Generates grid networks like GRIDGEN. The vertices form a grid of rows and
+ * columns, each pair of neighbours is connected by an edge in both
+ * directions, and additional random edges may be added. The skeleton consists
+ * of the edges within the rows and within the first column, which are
+ * uncapacitated.
+ *
+ * The vertex within row r and column c has the id
+ * {@code r * columns + c + 1}.
+ *
+ * @author mfj
+ */
+public class GridGenerator extends InstanceGenerator
+{
+
+    private final int rows, columns, sources, sinks, extraEdges, gridEdges;
+
+    /**
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param sources the number of vertices with supply
+     * @param sinks the number of vertices with demand
+     * @param extraEdges the number of random edges in addition to the grid
+     * edges
+     * @param seed the seed of the random generator
+     * @throws IllegalArgumentException if the instance would have too many
+     * vertices or edges for the arrays of a {@link GeneratedInstance}
+     */
+    public GridGenerator(int rows, int columns, int sources, int sinks, int extraEdges, long seed)
+    {
+        super(seed);
+        long n = (long) rows * columns;
+        if (rows < 1 || columns < 1 || n < 2 || sources < 0 || sinks < 0
+                || (long) sources + sinks > n || (sources == 0) != (sinks == 0) || extraEdges < 0)
+            throw new IllegalArgumentException();
+        if (n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many vertices: " + n);
+        long grid = 2L * rows * (columns - 1) + 2L * columns * (rows - 1);
+        if (grid + extraEdges > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges: " + (grid + extraEdges));
+        this.rows = rows;
+        this.columns = columns;
+        this.sources = sources;
+        this.sinks = sinks;
+        this.extraEdges = extraEdges;
+        this.gridEdges = (int) grid;
+    }
+
+    @Override
+    protected GeneratedInstance generate(Random random)
+    {
+        int n = rows * columns;
+        GeneratedInstance instance = new GeneratedInstance(n, gridEdges + extraEdges);
+
+        int[] terminals = permutation(random, 1, n);
+        int supply = getTotalSupply(sources);
+        int[] sourceIds = new int[sources], sinkIds = new int[sinks];
+        System.arraycopy(terminals, 0, sourceIds, 0, sources);
+        System.arraycopy(terminals, sources, sinkIds, 0, sinks);
+        distribute(random, instance, sourceIds, supply);
+        distribute(random, instance, sinkIds, -supply);
+
+        int uncapacitated = getUncapacitated(supply);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < columns; c++)
+            {
+                int id = r * columns + c + 1;
+                if (c + 1 < columns)
+                {
+                    instance.addEdge(id, id + 1, uncapacitated, nextCost(random));
+                    instance.addEdge(id + 1, id, uncapacitated, nextCost(random));
+                }
+                if (r + 1 < rows)
+                {
+                    int capacity = c == 0 ? uncapacitated : nextCapacity(random, uncapacitated);
+                    instance.addEdge(id, id + columns, capacity, nextCost(random));
+                    capacity = c == 0 ? uncapacitated : nextCapacity(random, uncapacitated);
+                    instance.addEdge(id + columns, id, capacity, nextCost(random));
+                }
+            }
+
+        for (int e = 0; e < extraEdges; e++)
+        {
+            int u = 1 + random.nextInt(n);
+            int v = 1 + random.nextInt(n - 1);
+            if (v >= u)
+                v++;
+            instance.addEdge(u, v, nextCapacity(random, uncapacitated), nextCost(random));
+        }
+        return instance;
+    }
+}
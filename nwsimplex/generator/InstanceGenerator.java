@@ -0,0 +1,212 @@
+package nwsimplex.generator;
+
+import java.util.Random;
+
+/**
+ * A generator of synthetic min-cost-flow instances in the spirit of NETGEN and
+ * GRIDGEN. A generator is deterministic: the same parameters and the same
+ * seed always produce the same instance, independent of the platform.
+ *
+ * Each generator first creates a skeleton of edges which can carry the whole
+ * supply, so every generated instance is feasible. The remaining edges are
+ * random. Their costs are drawn uniformly from the cost range, and a fraction
+ * of them gets a capacity drawn uniformly from the capacity range, while the
+ * others are uncapacitated. Small capacities and a large capacitated fraction
+ * give tight instances.
+ *
+ * @author mfj
+ */
+public abstract class InstanceGenerator
+{
+
+    private final long seed;
+    private int minCost = 0, maxCost = 1000;
+    private int minCapacity = 1, maxCapacity = 100;
+    private double capacitatedFraction = 1;
+    private int totalSupply = -1;
+
+    /**
+     * @param seed the seed of the random generator
+     */
+    protected InstanceGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the range of the edge costs, by default {@code [0, 1000]}.
+     *
+     * @param minCost the smallest cost
+     * @param maxCost the largest cost
+     * @return this generator
+     */
+    public InstanceGenerator setCostRange(int minCost, int maxCost)
+    {
+        if (minCost > maxCost)
+            throw new IllegalArgumentException();
+        this.minCost = minCost;
+        this.maxCost = maxCost;
+        return this;
+    }
+
+    /**
+     * Sets the range of the capacities of capacitated edges, by default
+     * {@code [1, 100]}.
+     *
+     * @param minCapacity the smallest capacity
+     * @param maxCapacity the largest capacity
+     * @return this generator
+     */
+    public InstanceGenerator setCapacityRange(int minCapacity, int maxCapacity)
+    {
+        if (minCapacity < 0 || minCapacity > maxCapacity)
+            throw new IllegalArgumentException();
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the random edges which are capacitated, by default
+     * all of them.
+     *
+     * @param capacitatedFraction a value between 0 and 1
+     * @return this generator
+     */
+    public InstanceGenerator setCapacitatedFraction(double capacitatedFraction)
+    {
+        if (!(capacitatedFraction >= 0 && capacitatedFraction <= 1))
+            throw new IllegalArgumentException();
+        this.capacitatedFraction = capacitatedFraction;
+        return this;
+    }
+
+    /**
+     * Sets the total supply, which is distributed among the sources. By
+     * default each source has an average supply of half the largest
+     * capacity.
+     *
+     * @param totalSupply the sum of all positive balances
+     * @return this generator
+     */
+    public InstanceGenerator setTotalSupply(int totalSupply)
+    {
+        if (totalSupply < 0)
+            throw new IllegalArgumentException();
+        this.totalSupply = totalSupply;
+        return this;
+    }
+
+    /**
+     * Generates a new instance.
+     *
+     * @return the instance
+     */
+    public GeneratedInstance generate()
+    {
+        return generate(new Random(seed));
+    }
+
+    /**
+     * Generates the instance.
+     *
+     * @param random the random generator which must be used exclusively
+     * @return the instance
+     */
+    protected abstract GeneratedInstance generate(Random random);
+
+    /**
+     * Gets the total supply for the specified number of sources.
+     */
+    protected int getTotalSupply(int sources)
+    {
+        if (totalSupply >= 0)
+            return totalSupply;
+        return (int) Math.min(Integer.MAX_VALUE >> 1, (long) sources * Math.max(1, maxCapacity / 2));
+    }
+
+    /**
+     * Gets the capacity of skeleton edges, which can carry the whole supply.
+     */
+    protected int getUncapacitated(int totalSupply)
+    {
+        return Math.max(totalSupply, maxCapacity);
+    }
+
+    /**
+     * Draws the cost of an edge.
+     */
+    protected int nextCost(Random random)
+    {
+        return minCost + (int) (random.nextDouble() * ((long) maxCost - minCost + 1));
+    }
+
+    /**
+     * Draws the capacity of a random edge.
+     *
+     * @param uncapacitated the capacity of uncapacitated edges
+     */
+    protected int nextCapacity(Random random, int uncapacitated)
+    {
+        if (random.nextDouble() >= capacitatedFraction)
+            return uncapacitated;
+        return minCapacity + (int) (random.nextDouble() * ((long) maxCapacity - minCapacity + 1));
+    }
+
+    /**
+     * Distributes an amount randomly among vertices, each vertex gets a share
+     * proportional to a random weight between 0.5 and 1.5.
+     *
+     * @param instance the instance whose balances are changed
+     * @param ids the vertices, if empty nothing is distributed
+     * @param amount the amount, which is added as supply if positive or as
+     * demand if negative
+     */
+    protected static void distribute(Random random, GeneratedInstance instance, int[] ids, int amount)
+    {
+        if (ids.length == 0)
+            return;
+        double[] weight = new double[ids.length];
+        double sum = 0;
+        for (int i = 0; i < ids.length; i++)
+            sum += weight[i] = 0.5 + random.nextDouble();
+
+        int sign = amount < 0 ? -1 : 1, total = Math.abs(amount), remaining = total;
+        for (int i = 0; i < ids.length && remaining > 0; i++)
+        {
+            int share = Math.min(remaining, (int) (total * weight[i] / sum));
+            instance.addSupply(ids[i], sign * share);
+            remaining -= share;
+        }
+        // the rounding remainder
+        for (int i = 0; remaining > 0; i = (i + 1) % ids.length, remaining--)
+            instance.addSupply(ids[i], sign);
+    }
+
+    /**
+     * Moves {@code count} randomly drawn elements of an array to its front,
+     * by a partial Fisher-Yates shuffle.
+     */
+    protected static void shuffle(Random random, int[] ids, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int j = i + random.nextInt(ids.length - i);
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+    }
+
+    /**
+     * Gets the id's {@code first} to {@code first + size - 1} in random order.
+     */
+    protected static int[] permutation(Random random, int first, int size)
+    {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++)
+            ids[i] = first + i;
+        shuffle(random, ids, size);
+        return ids;
+    }
+}
@@ -0,0 +1,79 @@
+package nwsimplex.generator;
+
+import java.util.Random;
+
+/**
+ * Generates transportation problems, which are bipartite networks where each
+ * edge goes from a source to a sink. The source ids range from 1 to the
+ * number of sources, the sink ids follow.
+ *
+ * The skeleton is found by the northwest corner rule: the supply of the
+ * sources is assigned to the sinks in order, and each assignment becomes an
+ * edge with a capacity of at least the assigned amount. In addition each
+ * source is connected to randomly chosen distinct sinks.
+ *
+ * @author mfj
+ */
+public class TransportationGenerator extends InstanceGenerator
+{
+
+    private final int sources, sinks, edgesPerSource;
+
+    /**
+     * @param sources the number of sources, at least one
+     * @param sinks the number of sinks, at least one
+     * @param edgesPerSource the number of random edges of each source, at
+     * most the number of sinks, which gives a complete bipartite network
+     * @param seed the seed of the random generator
+     */
+    public TransportationGenerator(int sources, int sinks, int edgesPerSource, long seed)
+    {
+        super(seed);
+        if (sources < 1 || sinks < 1 || edgesPerSource < 0 || edgesPerSource > sinks)
+            throw new IllegalArgumentException();
+        this.sources = sources;
+        this.sinks = sinks;
+        this.edgesPerSource = edgesPerSource;
+    }
+
+    @Override
+    protected GeneratedInstance generate(Random random)
+    {
+        // at most sources + sinks - 1 skeleton edges
+        long m = (long) sources * edgesPerSource + sources + sinks - 1;
+        if (m > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges: " + m);
+        GeneratedInstance instance = new GeneratedInstance(sources + sinks, (int) m);
+
+        int supply = getTotalSupply(sources);
+        int[] sourceIds = permutation(random, 1, sources), sinkIds = permutation(random, sources + 1, sinks);
+        distribute(random, instance, sourceIds, supply);
+        distribute(random, instance, sinkIds, -supply);
+
+        // the northwest corner rule
+        int uncapacitated = getUncapacitated(supply);
+        int i = 1, j = sources + 1;
+        int left = instance.getBalance(i), needed = -instance.getBalance(j);
+        while (i <= sources && j <= sources + sinks)
+        {
+            int amount = Math.min(left, needed);
+            if (amount > 0)
+                instance.addEdge(i, j, Math.max(amount, nextCapacity(random, uncapacitated)), nextCost(random));
+            left -= amount;
+            needed -= amount;
+            if (left == 0 && ++i <= sources)
+                left = instance.getBalance(i);
+            if (needed == 0 && ++j <= sources + sinks)
+                needed = -instance.getBalance(j);
+        }
+
+        int[] targets = sinkIds;
+        for (int u = 1; u <= sources; u++)
+        {
+            shuffle(random, targets, edgesPerSource);
+            for (int k = 0; k < edgesPerSource; k++)
+                instance.addEdge(u, targets[k], nextCapacity(random, uncapacitated), nextCost(random));
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,90 @@
+package nwsimplex.generator;
+
+import java.util.Random;
+
+/**
+ * Generates random transshipment networks like NETGEN: some vertices are
+ * sources, some are sinks and all others only forward flow. The skeleton is an
+ * uncapacitated cycle through all vertices in random order, the remaining
+ * edges connect random pairs of distinct vertices.
+ *
+ * @author mfj
+ */
+public class TransshipmentGenerator extends InstanceGenerator
+{
+
+    private final int numberOfVertices, numberOfEdges, sources, sinks;
+
+    /**
+     * @param numberOfVertices the number of vertices, at least two
+     * @param edgesPerVertex the average out degree including the skeleton,
+     * at least one
+     * @param sources the number of vertices with supply
+     * @param sinks the number of vertices with demand
+     * @param seed the seed of the random generator
+     * @throws IllegalArgumentException if the instance would have too many
+     * vertices or edges for the arrays of a {@link GeneratedInstance}
+     */
+    public TransshipmentGenerator(int numberOfVertices, int edgesPerVertex, int sources, int sinks, long seed)
+    {
+        super(seed);
+        if (numberOfVertices < 2 || edgesPerVertex < 1 || sources < 0 || sinks < 0
+                || (long) sources + sinks > numberOfVertices || (sources == 0) != (sinks == 0))
+            throw new IllegalArgumentException();
+        if (numberOfVertices > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many vertices: " + numberOfVertices);
+        long m = (long) numberOfVertices * edgesPerVertex;
+        if (m > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges: " + m);
+        this.numberOfVertices = numberOfVertices;
+        this.numberOfEdges = (int) m;
+        this.sources = sources;
+        this.sinks = sinks;
+    }
+
+    /**
+     * Instantiates a generator where a quarter of the vertices are sources and
+     * another quarter are sinks.
+     *
+     * @param numberOfVertices the number of vertices, at least four
+     * @param edgesPerVertex the average out degree including the skeleton,
+     * at least one
+     * @param seed the seed of the random generator
+     */
+    public TransshipmentGenerator(int numberOfVertices, int edgesPerVertex, long seed)
+    {
+        this(numberOfVertices, edgesPerVertex, numberOfVertices / 4, numberOfVertices / 4, seed);
+    }
+
+    @Override
+    protected GeneratedInstance generate(Random random)
+    {
+        int n = numberOfVertices;
+        GeneratedInstance instance = new GeneratedInstance(n, numberOfEdges);
+
+        int[] terminals = permutation(random, 1, n);
+        int supply = getTotalSupply(sources);
+        int[] sourceIds = new int[sources], sinkIds = new int[sinks];
+        System.arraycopy(terminals, 0, sourceIds, 0, sources);
+        System.arraycopy(terminals, sources, sinkIds, 0, sinks);
+        distribute(random, instance, sourceIds, supply);
+        distribute(random, instance, sinkIds, -supply);
+
+        // the skeleton
+        int uncapacitated = getUncapacitated(supply);
+        int[] cycle = permutation(random, 1, n);
+        for (int i = 0; i < n; i++)
+            instance.addEdge(cycle[i], cycle[(i + 1) % n], uncapacitated, nextCost(random));
+
+        for (int e = n; e < numberOfEdges; e++)
+        {
+            int u = 1 + random.nextInt(n);
+            // a target different from the origin
+            int v = 1 + random.nextInt(n - 1);
+            if (v >= u)
+                v++;
+            instance.addEdge(u, v, nextCapacity(random, uncapacitated), nextCost(random));
+        }
+        return instance;
+    }
+}
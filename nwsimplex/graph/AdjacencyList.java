@@ -4,13 +4,29 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
- * A class that represents a simple adjacency lists.
+ * A class that represents a simple adjacency lists. The list is intrusive: the
+ * links are stored within the edges themselves, so adding an edge allocates
+ * nothing and an edge can be removed in constant time. Since an edge has one
+ * origin and one target, it is contained in exactly one list of outgoing and
+ * one list of ingoing edges.
  * @author mfj
  */
 public class AdjacencyList implements Iterator<Edge>, Iterable<Edge>
 {
 
-    private Entry root, next;
+    // true if this list links edges by their outgoing links
+    private final boolean outgoing;
+    private Edge root, next;
+
+    /**
+     * Instantiates an empty list.
+     * @param outgoing true for a list of outgoing edges, false for a list of
+     * ingoing edges
+     */
+    public AdjacencyList(boolean outgoing)
+    {
+        this.outgoing = outgoing;
+    }
 
     /**
      * Adds a new Edge to this list.
@@ -18,7 +34,47 @@ public class AdjacencyList implements Iterator<Edge>, Iterable<Edge>
      */
     public void add(Edge e)
     {
-        root = root == null ? new Entry(e, null) : new Entry(e, root);
+        setPrev(e, null);
+        setNext(e, root);
+        if (root != null)
+            setPrev(root, e);
+        root = e;
+    }
+
+    /**
+     * Removes an Edge from this list in constant time.
+     * @param e an edge contained within this list.
+     */
+    public void remove(Edge e)
+    {
+        Edge prev = getPrev(e), succ = getNext(e);
+        if (prev == null)
+            root = succ;
+        else
+            setNext(prev, succ);
+        if (succ != null)
+            setPrev(succ, prev);
+        if (next == e)
+            next = succ;
+        setPrev(e, null);
+        setNext(e, null);
+    }
+
+    /**
+     * Gets the first edge of this list.
+     * @return the first edge or null if this list is empty
+     */
+    public Edge first()
+    {
+        return root;
+    }
+
+    /**
+     * Tests if this list contains no edges.
+     */
+    public boolean isEmpty()
+    {
+        return root == null;
     }
 
     @Override
@@ -30,16 +86,12 @@ public class AdjacencyList implements Iterator<Edge>, Iterable<Edge>
     @Override
     public Edge next()
     {
-        try
-        {
-            Edge key = next.edge;
-            next = next.next;
-            return key;
-        }
-        catch (NullPointerException npe)
-        {
+        if (next == null)
             throw new NoSuchElementException();
-        }
+
+        Edge key = next;
+        next = getNext(next);
+        return key;
     }
 
     /**
@@ -65,18 +117,31 @@ public class AdjacencyList implements Iterator<Edge>, Iterable<Edge>
         reset();
         return this;
     }
-    
-    // a simple entry class
-    private class Entry
+
+    // accessors of the links which belong to this kind of list
+    private Edge getNext(Edge e)
+    {
+        return outgoing ? e.nextOut : e.nextIn;
+    }
+
+    private Edge getPrev(Edge e)
+    {
+        return outgoing ? e.prevOut : e.prevIn;
+    }
+
+    private void setNext(Edge e, Edge succ)
+    {
+        if (outgoing)
+            e.nextOut = succ;
+        else
+            e.nextIn = succ;
+    }
+
+    private void setPrev(Edge e, Edge prev)
     {
-        Edge edge;
-    
-        Entry next;
-
-        Entry(Edge edge, Entry next)
-        {
-            this.edge = edge;
-            this.next = next;
-        }
+        if (outgoing)
+            e.prevOut = prev;
+        else
+            e.prevIn = prev;
     }
 }
@@ -0,0 +1,113 @@
+package nwsimplex.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The storage shared by the off heap columns. Since a single ByteBuffer is
+ * limited to 2GB, a column is split into chunks of {@code 2^CHUNK_SHIFT}
+ * values each. Each chunk is a region of a memory mapped file.
+ *
+ * An anonymous column maps a temporary file, which is deleted as soon as it
+ * is mapped. Unlike direct buffers, whose total size is limited to the heap
+ * size by default, mapped memory is neither limited by the JVM nor bound to
+ * physical memory, since the operating system can page it out.
+ *
+ * @author mfj
+ */
+abstract class Column
+{
+
+    static final int CHUNK_SHIFT = 26;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * the byte order of the columns, which is fixed so that mapped files can
+     * be exchanged between platforms
+     */
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    // the raw buffers, required to flush mapped chunks
+    final ByteBuffer[] buffers;
+    // true if the underlying file was deleted
+    private final boolean anonymous;
+
+    Column(ByteBuffer[] buffers, boolean anonymous)
+    {
+        this.buffers = buffers;
+        this.anonymous = anonymous;
+    }
+
+    /**
+     * Maps the buffers of an anonymous column to a temporary file, which is
+     * deleted when its channel is closed. The mapping stays valid until the
+     * buffers are garbage collected.
+     *
+     * @param size the number of values
+     * @param valueShift the log2 of the size of a value in bytes
+     */
+    static ByteBuffer[] allocateBuffers(int size, int valueShift) throws IOException
+    {
+        Path file = Files.createTempFile("nwsimplex", ".column");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE))
+        {
+            return mapBuffers(channel, FileChannel.MapMode.READ_WRITE, 0, size, valueShift);
+        }
+        finally
+        {
+            // only left if the channel could not be opened
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Maps the buffers of a column to a region of a file.
+     *
+     * @param size the number of values
+     * @param valueShift the log2 of the size of a value in bytes
+     */
+    static ByteBuffer[] mapBuffers(FileChannel channel, FileChannel.MapMode mode, long offset, int size, int valueShift)
+            throws IOException
+    {
+        ByteBuffer[] buffers = new ByteBuffer[numberOfChunks(size)];
+        long position = offset;
+        for (int i = 0; i < buffers.length; i++)
+        {
+            long bytes = (long) chunkLength(size, i) << valueShift;
+            buffers[i] = channel.map(mode, position, bytes);
+            position += bytes;
+        }
+        return buffers;
+    }
+
+    private static int numberOfChunks(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException();
+        return (int) (((long) size + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(int size, int chunk)
+    {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+    }
+
+    /**
+     * Writes all changes of a mapped column to the underlying file. Does
+     * nothing for anonymous columns.
+     */
+    public void force()
+    {
+        if (anonymous)
+            return;
+        for (ByteBuffer buffer : buffers)
+            if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly())
+                ((MappedByteBuffer) buffer).force();
+    }
+}
@@ -12,17 +12,20 @@ public class Edge
      */
     public int flow;
     /**
-     * the cost of this edge
+     * the cost of this edge, use {@link Graph#setCost(Edge, int)} to change it.
+     * Only the artificial edges of the spanning tree exceed the int range.
      */
-    public final int cost;
+    public long cost;
     /**
-     * the lower capacity of this edge
+     * the lower capacity of this edge, use
+     * {@link Graph#setCapacities(Edge, int, int)} to change it
      */
-    public final int lowerCapacity;
+    public int lowerCapacity;
     /**
-     * the upper capacity of this edge
+     * the upper capacity of this edge, use
+     * {@link Graph#setCapacities(Edge, int, int)} to change it
      */
-    public final int upperCapacity;
+    public int upperCapacity;
     /**
      * the vertiex from which this edge goes out
      */
@@ -31,6 +34,20 @@ public class Edge
      * the vertex from which this edge goes in
      */
     public final Vertex to;
+    /**
+     * the handle assigned by the graph this edge was added to, stays the same
+     * if other edges are removed
+     */
+    int id = -1;
+    /**
+     * the position within the edge array of the graph, -1 if this edge is not
+     * contained within a graph
+     */
+    int index = -1;
+    /**
+     * links of the intrusive adjacency lists
+     */
+    Edge nextOut, prevOut, nextIn, prevIn;
 
     /**
      *
@@ -41,7 +58,7 @@ public class Edge
      * @param from
      * @param to
      */
-    public Edge(int flow, int cost, int lowerCapacity, int upperCapacity, Vertex from, Vertex to)
+    public Edge(int flow, long cost, int lowerCapacity, int upperCapacity, Vertex from, Vertex to)
     {
         this.flow = flow;
         this.cost = cost;
@@ -51,6 +68,30 @@ public class Edge
         this.to = to;
     }
 
+    /**
+     * Gets the handle of this edge, which was assigned by the graph this edge
+     * was added to. The handle is stable, it does not change if other edges
+     * are removed.
+     *
+     * @return the handle or -1 if this edge was never added to a graph
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Gets the position of this edge within the edge array of its graph, see
+     * {@link Graph#edgeAt(int)}. Unlike the handle, the position changes if
+     * other edges are removed.
+     *
+     * @return the position or -1 if this edge is not contained within a graph
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
     /**
      * Indicates that the edge flow reaches the lower bound
      *
@@ -76,12 +117,12 @@ public class Edge
      *
      * @return  {@code cost - from.potential + to.potential}
      */
-    public int reducedCost()
+    public long reducedCost()
     {
         return cost - from.potential + to.potential;
     }
     
-    public void moderatePotentials(Vertex changed, int change)
+    public void moderatePotentials(Vertex changed, long change)
     {
         // red cost = cost - from.potential + to.potential
         if(changed == to)
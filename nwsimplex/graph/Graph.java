@@ -11,6 +11,11 @@ import nwsimplex.util.VertexUtils;
  * vertices can be identified by a unique id ranging from zero to the specified
  * domainsize of the graph.
  *
+ * edges are stored densely within an array. A removed edge is replaced by the
+ * last edge of the array, so the position of an edge may change. Therefore
+ * each edge is identified by a stable handle, see {@link Edge#getId()}, which
+ * is assigned when the edge is added and never reused.
+ *
  * @author mfj
  */
 public class Graph
@@ -24,18 +29,43 @@ public class Graph
     private int maxAbsCost = 0;
     // an array that stores all vertices
     private Vertex[] vertices;
-    // a linked list of edges, that stores all added edges
-    private LinkedList<Edge> edges = new LinkedList<Edge>();
+    // an array that stores all contained edges densely
+    private Edge[] edges = new Edge[16];
+    // the number of contained edges
+    private int numberOfEdges = 0;
+    // all edges ever added, indexed by their handle
+    private Edge[] handles = new Edge[16];
+    // the number of assigned handles
+    private int numberOfHandles = 0;
 
     /**
+     * Instantiates a graph from vertices and edges which were created
+     * independently, e.g. by a parser. Each vertex is stored at the position of
+     * its id and each edge is added to the adjacency lists of its vertices.
+     *
      * @param vertices
      * @param edges
      */
     public Graph(final Collection<Vertex> vertices, final Collection<Edge> edges)
     {
         Collection<Vertex> sorted = VertexUtils.sortByID(vertices);
-        this.vertices = sorted.toArray(new Vertex[sorted.size()]);
-        this.edges = new LinkedList<>(edges);
+        int domainsize = 0;
+        for (Vertex v : sorted)
+            domainsize = Math.max(domainsize, v.ID + 1);
+        this.vertices = new Vertex[domainsize];
+        for (Vertex v : sorted)
+        {
+            if (this.vertices[v.ID] == null)
+                numberOfVertices++;
+            this.vertices[v.ID] = v;
+            lastVertexId = v.ID;
+        }
+        for (Edge e : edges)
+        {
+            // the edges of a graph have int costs
+            maxAbsCost = Math.max(maxAbsCost, Math.abs((int) e.cost));
+            register(e);
+        }
     }
 
     public Graph(int domainsize)
@@ -43,6 +73,23 @@ public class Graph
         this.vertices = new Vertex[domainsize + 1];
     }
 
+    /**
+     * Instantiates a graph from prepared arrays, used by the
+     * {@link GraphBuilder}. The edges must already be linked into the
+     * adjacency lists and carry their handle and position.
+     */
+    Graph(Vertex[] vertices, int numberOfVertices, int lastVertexId, Edge[] edges, int numberOfEdges, int maxAbsCost)
+    {
+        this.vertices = vertices;
+        this.numberOfVertices = numberOfVertices;
+        this.lastVertexId = lastVertexId;
+        this.edges = edges;
+        this.numberOfEdges = numberOfEdges;
+        this.handles = Arrays.copyOf(edges, edges.length);
+        this.numberOfHandles = numberOfEdges;
+        this.maxAbsCost = maxAbsCost;
+    }
+
     /**
      * Gets the total amount of edges.
      *
@@ -50,7 +97,7 @@ public class Graph
      */
     public int getNumberOfEdges()
     {
-        return edges.size();
+        return numberOfEdges;
     }
 
     /**
@@ -130,7 +177,8 @@ public class Graph
     {
         if (id >= vertices.length)
             grow(id + 1);
-        else if (vertices[id] != null)
+
+        if (vertices[id] != null)
             vertices[id].balance = balance;
         else
         {
@@ -160,16 +208,7 @@ public class Graph
         if (getVertex(toId) == null)
             addVertex(toId, 0);
 
-        Vertex from = getVertex(fromId);
-        Vertex to = getVertex(toId);
-
-        maxAbsCost = Math.max(maxAbsCost, Math.abs(cost));
-
-        Edge edge = new Edge(flow, cost, lowerCapacity, upperCapacity, from, to);
-        from.outgoing.add(edge);
-        to.ingoing.add(edge);
-        edges.add(edge);
-        return edge;
+        return addEdge(flow, cost, lowerCapacity, upperCapacity, getVertex(fromId), getVertex(toId));
     }
 
     /**
@@ -182,18 +221,228 @@ public class Graph
      * @param from
      * @param to
      * @return
+     * @throws IllegalStateException if a vertex is not active
      */
     public Edge addEdge(int flow, int cost, int lowerCapacity, int upperCapacity, Vertex from, Vertex to)
     {
+        if (!from.active || !to.active)
+            throw new IllegalStateException("Vertex is not active.");
+
         maxAbsCost = Math.max(maxAbsCost, Math.abs(cost));
 
         Edge edge = new Edge(flow, cost, lowerCapacity, upperCapacity, from, to);
-        from.outgoing.add(edge);
-        to.ingoing.add(edge);
-        edges.add(edge);
+        register(edge);
         return edge;
     }
 
+    // assigns a handle to a new edge and inserts it
+    private void register(Edge e)
+    {
+        if (numberOfHandles == handles.length)
+            handles = Arrays.copyOf(handles, handles.length << 1);
+        e.id = numberOfHandles++;
+        handles[e.id] = e;
+        insert(e);
+    }
+
+    // appends an edge to the edge array and links it into the adjacency lists
+    private void insert(Edge e)
+    {
+        if (numberOfEdges == edges.length)
+            edges = Arrays.copyOf(edges, edges.length << 1);
+        e.index = numberOfEdges;
+        edges[numberOfEdges++] = e;
+        e.from.outgoing.add(e);
+        e.to.ingoing.add(e);
+    }
+
+    /**
+     * Removes an edge from this graph in constant time. The last edge of the
+     * edge array takes over the position of the removed one. The removed edge
+     * keeps its handle and can be restored by {@link #restoreEdge(Edge)}.
+     *
+     * @param e the edge to remove
+     * @return true if the edge was contained within this graph
+     */
+    public boolean removeEdge(Edge e)
+    {
+        if (!contains(e))
+            return false;
+
+        Edge last = edges[--numberOfEdges];
+        edges[e.index] = last;
+        last.index = e.index;
+        edges[numberOfEdges] = null;
+        e.index = -1;
+
+        e.from.outgoing.remove(e);
+        e.to.ingoing.remove(e);
+        return true;
+    }
+
+    /**
+     * Adds a previously removed edge to this graph again in constant time.
+     *
+     * @param e the edge to restore
+     * @return true if the edge was not contained within this graph
+     * @throws IllegalArgumentException if the edge was not added to this graph
+     * @throws IllegalStateException if a vertex of the edge is not active
+     */
+    public boolean restoreEdge(Edge e)
+    {
+        if (e.id < 0 || e.id >= numberOfHandles || handles[e.id] != e)
+            throw new IllegalArgumentException("Edge does not belong to this graph.");
+        if (e.index >= 0)
+            return false;
+        if (!e.from.active || !e.to.active)
+            throw new IllegalStateException("Vertex is not active.");
+
+        insert(e);
+        return true;
+    }
+
+    /**
+     * Tests if an edge is contained within this graph, meaning that it was
+     * added and not removed.
+     *
+     * @param e the edge to test
+     * @return true if the edge is contained
+     */
+    public boolean contains(Edge e)
+    {
+        return e.index >= 0 && e.index < numberOfEdges && edges[e.index] == e;
+    }
+
+    /**
+     * Gets the edge which is specified by its handle. Removed edges are
+     * returned as well.
+     *
+     * @param id the handle of the edge
+     * @return the edge or null if no edge has this handle
+     */
+    public Edge getEdge(int id)
+    {
+        if (id < 0 || id >= numberOfHandles)
+            return null;
+        return handles[id];
+    }
+
+    /**
+     * Gets the number of handles assigned so far, which is the range of the
+     * edge handles.
+     *
+     * @return the number of added edges including removed ones
+     */
+    public int getEdgeDomainSize()
+    {
+        return numberOfHandles;
+    }
+
+    /**
+     * Deactivates a vertex and removes all its edges, which takes constant
+     * time per edge. The vertex keeps its balance but is no longer counted or
+     * iterated, until it is activated again.
+     *
+     * @param id the id of the vertex
+     * @return the removed edges, which can be restored after the vertex is
+     * activated again
+     * @throws IllegalArgumentException if no such vertex exists
+     */
+    public Collection<Edge> deactivateVertex(int id)
+    {
+        Vertex v = getVertex(id);
+        if (v == null)
+            throw new IllegalArgumentException("No vertex with id " + id + ".");
+
+        List<Edge> removed = new ArrayList<>();
+        if (!v.active)
+            return removed;
+
+        Edge e;
+        while ((e = v.outgoing.first()) != null)
+        {
+            removeEdge(e);
+            removed.add(e);
+        }
+        while ((e = v.ingoing.first()) != null)
+        {
+            removeEdge(e);
+            removed.add(e);
+        }
+        v.active = false;
+        numberOfVertices--;
+        return removed;
+    }
+
+    /**
+     * Activates a previously deactivated vertex. Its edges are not restored
+     * automatically.
+     *
+     * @param id the id of the vertex
+     * @throws IllegalArgumentException if no such vertex exists
+     */
+    public void activateVertex(int id)
+    {
+        Vertex v = getVertex(id);
+        if (v == null)
+            throw new IllegalArgumentException("No vertex with id " + id + ".");
+        if (!v.active)
+        {
+            v.active = true;
+            numberOfVertices++;
+        }
+    }
+
+    /**
+     * Finds an edge connecting two vertices specified by their id's. If there
+     * are parallel edges, the one which was added last is returned.
+     *
+     * @param fromId
+     * @param toId
+     * @return the edge or null if no such edge exists
+     */
+    public Edge findEdge(int fromId, int toId)
+    {
+        Vertex from = getVertex(fromId);
+        if (from == null)
+            return null;
+        for (Edge e : from.outgoing)
+            if (e.to.ID == toId)
+                return e;
+        return null;
+    }
+
+    /**
+     * Changes the cost of an edge within this graph.
+     *
+     * @param e the edge
+     * @param cost the new cost
+     */
+    public void setCost(Edge e, int cost)
+    {
+        e.cost = cost;
+        // remains an upper bound if the maximum is decreased
+        maxAbsCost = Math.max(maxAbsCost, Math.abs(cost));
+    }
+
+    /**
+     * Changes the capacities of an edge within this graph. The flow is moved
+     * into the new bounds if necessary.
+     *
+     * @param e the edge
+     * @param lowerCapacity the new lower capacity
+     * @param upperCapacity the new upper capacity
+     * @throws IllegalArgumentException if {@code lowerCapacity > upperCapacity}
+     */
+    public void setCapacities(Edge e, int lowerCapacity, int upperCapacity)
+    {
+        if (lowerCapacity > upperCapacity)
+            throw new IllegalArgumentException();
+        e.lowerCapacity = lowerCapacity;
+        e.upperCapacity = upperCapacity;
+        e.flow = Math.min(upperCapacity, Math.max(lowerCapacity, e.flow));
+    }
+
     /**
      * Gets the vertex which is specified by its id.
      *
@@ -211,7 +460,7 @@ public class Graph
     }
 
     /**
-     * Gets an Iterator which traverses over all vertices.
+     * Gets an Iterator which traverses over all active vertices.
      * @return 
      */
     public Iterator<Vertex> vertexIterator()
@@ -226,7 +475,7 @@ public class Graph
             {
                 while (currPos < vertices.length - 1)
                 {
-                    if (vertices[currPos + 1] != null)
+                    if (vertices[currPos + 1] != null && vertices[currPos + 1].active)
                         return true;
                     currPos++;
                 }
@@ -258,7 +507,86 @@ public class Graph
      */
     public Iterator<Edge> edgeIterator()
     {
-        return edges.iterator();
+        return new Iterator<Edge>()
+        {
+
+            int currPos = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return currPos < numberOfEdges;
+            }
+
+            @Override
+            public Edge next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return edges[currPos++];
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Not supported.");
+            }
+
+        };
+    }
+
+    /**
+     * Gets the edge at the specified position of the edge array. Note that the
+     * position of an edge changes if another edge is removed.
+     *
+     * @param index the position, ranging from zero to
+     * {@code getNumberOfEdges() - 1}
+     * @return the edge
+     */
+    public Edge edgeAt(int index)
+    {
+        if (index >= numberOfEdges)
+            throw new IndexOutOfBoundsException();
+        return edges[index];
+    }
+
+    /**
+     * Tests if this graph is a forest, that is if its edges form no cycle when
+     * their directions are ignored. Parallel edges form a cycle. A forest with
+     * {@code c} components has at most {@code n - c} edges, so graphs with at
+     * least as many edges as vertices are rejected at once, otherwise the
+     * edges are merged by a union find structure.
+     *
+     * @return true if the edges contain no cycle
+     */
+    public boolean isForest()
+    {
+        if (numberOfEdges >= numberOfVertices)
+            return false;
+
+        int[] parent = new int[vertices.length];
+        for (int i = 0; i < parent.length; i++)
+            parent[i] = i;
+        for (int i = 0; i < numberOfEdges; i++)
+        {
+            int a = find(parent, edges[i].from.ID), b = find(parent, edges[i].to.ID);
+            if (a == b)
+                return false;
+            parent[a] = b;
+        }
+        return true;
+    }
+
+    // finds the representative of a set and halves the path to it
+    private static int find(int[] parent, int i)
+    {
+        while (parent[i] != i)
+        {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
     }
 
 }
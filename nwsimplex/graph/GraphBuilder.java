@@ -0,0 +1,313 @@
+package nwsimplex.graph;
+
+import java.util.Arrays;
+
+/**
+ * Builds a {@link Graph} from primitive data in bulk. Vertices and edges are
+ * collected within pre-sized int arrays, either one by one or as whole arrays,
+ * and the graph is constructed by two linear passes: the first creates the
+ * vertices, the second creates the edges and links them into the adjacency
+ * lists. Apart from the vertices and edges themselves nothing is allocated per
+ * element. If the arrays turn out to be too small they are grown, but sizing
+ * them correctly in advance avoids any copying.
+ *
+ * Unlike {@link Graph#addEdge(int, int, int, int, int, int)} the flow of an
+ * edge is not specified, every edge starts with a flow equal to its lower
+ * capacity.
+ *
+ * @author mfj
+ */
+public class GraphBuilder
+{
+
+    // the largest referenced vertex id + 1
+    private int vertexDomainSize = 0;
+    // balance of each vertex and a flag for the vertices that were added
+    private int[] balance;
+    private boolean[] added;
+    private int numberOfVertices = 0;
+    // the edge columns
+    private int[] from, to, lowerCapacity, upperCapacity, cost;
+    private int numberOfEdges = 0;
+
+    /**
+     * Instantiates a new builder.
+     *
+     * @param expectedVertexDomainSize the range of the vertex id's the arrays
+     * are sized for
+     * @param expectedNumberOfEdges the number of edges the arrays are sized
+     * for
+     */
+    public GraphBuilder(int expectedVertexDomainSize, int expectedNumberOfEdges)
+    {
+        if (expectedVertexDomainSize < 0 || expectedNumberOfEdges < 0)
+            throw new IllegalArgumentException();
+        this.balance = new int[expectedVertexDomainSize];
+        this.added = new boolean[expectedVertexDomainSize];
+        this.from = new int[expectedNumberOfEdges];
+        this.to = new int[expectedNumberOfEdges];
+        this.lowerCapacity = new int[expectedNumberOfEdges];
+        this.upperCapacity = new int[expectedNumberOfEdges];
+        this.cost = new int[expectedNumberOfEdges];
+    }
+
+    /**
+     * Grows the arrays to the specified sizes if they are smaller, e.g. once
+     * the size of an instance becomes known.
+     *
+     * @param vertexDomainSize the range of the vertex id's
+     * @param numberOfEdges the total number of edges
+     */
+    public void ensureCapacity(int vertexDomainSize, int numberOfEdges)
+    {
+        if (vertexDomainSize > balance.length)
+            growVertices(vertexDomainSize);
+        if (numberOfEdges > from.length)
+            growEdges(numberOfEdges);
+    }
+
+    /**
+     * Gets the number of explicitly added vertices.
+     */
+    public int getNumberOfVertices()
+    {
+        return numberOfVertices;
+    }
+
+    /**
+     * Gets the number of added edges.
+     */
+    public int getNumberOfEdges()
+    {
+        return numberOfEdges;
+    }
+
+    /**
+     * Gets the range of the vertex id's, which is the largest id referenced so
+     * far plus one.
+     */
+    public int getVertexDomainSize()
+    {
+        return vertexDomainSize;
+    }
+
+    /**
+     * Tests if a vertex with the specified id was added.
+     */
+    public boolean hasVertex(int id)
+    {
+        return id >= 0 && id < balance.length && added[id];
+    }
+
+    /**
+     * Adds a vertex with the specified balance. If the vertex was already
+     * added, its balance is changed.
+     *
+     * @param id the id of the vertex
+     * @param balance the balance
+     * @return this builder
+     */
+    public GraphBuilder addVertex(int id, int balance)
+    {
+        checkId(id);
+        if (!added[id])
+        {
+            added[id] = true;
+            numberOfVertices++;
+        }
+        this.balance[id] = balance;
+        return this;
+    }
+
+    /**
+     * Adds the vertices with id's ranging from zero to
+     * {@code balances.length - 1}, with balances copied from an array.
+     *
+     * @param balances the balance of each vertex id
+     * @return this builder
+     */
+    public GraphBuilder setBalances(int[] balances)
+    {
+        if (balances.length == 0)
+            return this;
+        checkId(balances.length - 1);
+        System.arraycopy(balances, 0, balance, 0, balances.length);
+        for (int id = 0; id < balances.length; id++)
+            if (!added[id])
+            {
+                added[id] = true;
+                numberOfVertices++;
+            }
+        return this;
+    }
+
+    /**
+     * Adds a new edge.
+     *
+     * @param fromId
+     * @param toId
+     * @param lowerCapacity
+     * @param upperCapacity
+     * @param cost
+     * @return this builder
+     */
+    public GraphBuilder addEdge(int fromId, int toId, int lowerCapacity, int upperCapacity, int cost)
+    {
+        checkId(fromId);
+        checkId(toId);
+        if (numberOfEdges == from.length)
+            growEdges(numberOfEdges + 1);
+
+        int e = numberOfEdges++;
+        this.from[e] = fromId;
+        this.to[e] = toId;
+        this.lowerCapacity[e] = lowerCapacity;
+        this.upperCapacity[e] = upperCapacity;
+        this.cost[e] = cost;
+        return this;
+    }
+
+    /**
+     * Adds a range of edges which are given column wise.
+     *
+     * @param from the origin of each edge
+     * @param to the target of each edge
+     * @param lowerCapacity the lower capacity of each edge
+     * @param upperCapacity the upper capacity of each edge
+     * @param cost the cost of each edge
+     * @param offset the first edge within the arrays
+     * @param length the number of edges
+     * @return this builder
+     */
+    public GraphBuilder addEdges(int[] from, int[] to, int[] lowerCapacity, int[] upperCapacity, int[] cost,
+            int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            checkId(from[i]);
+            checkId(to[i]);
+        }
+        if (numberOfEdges + length > this.from.length)
+            growEdges(numberOfEdges + length);
+
+        System.arraycopy(from, offset, this.from, numberOfEdges, length);
+        System.arraycopy(to, offset, this.to, numberOfEdges, length);
+        System.arraycopy(lowerCapacity, offset, this.lowerCapacity, numberOfEdges, length);
+        System.arraycopy(upperCapacity, offset, this.upperCapacity, numberOfEdges, length);
+        System.arraycopy(cost, offset, this.cost, numberOfEdges, length);
+        numberOfEdges += length;
+        return this;
+    }
+
+    /**
+     * Finds an edge whose origin or target was not added as vertex.
+     *
+     * @return the index of the first such edge or -1 if all vertices of the
+     * edges were added
+     */
+    public int findEdgeWithUnknownVertex()
+    {
+        for (int e = 0; e < numberOfEdges; e++)
+            if (!added[from[e]] || !added[to[e]])
+                return e;
+        return -1;
+    }
+
+    /**
+     * Gets the origin of an added edge.
+     */
+    public int getFrom(int edge)
+    {
+        return from[edge];
+    }
+
+    /**
+     * Gets the target of an added edge.
+     */
+    public int getTo(int edge)
+    {
+        return to[edge];
+    }
+
+    /**
+     * Builds the graph. Vertices which are referenced by an edge but were not
+     * added are created with a balance of zero. The edges get handles in the
+     * order they were added.
+     *
+     * @return the new graph
+     */
+    public Graph build()
+    {
+        // first pass: the vertices
+        Vertex[] vertices = new Vertex[vertexDomainSize];
+        int lastVertexId = -1, count = 0;
+        for (int id = 0; id < vertexDomainSize; id++)
+            if (added[id])
+            {
+                vertices[id] = new Vertex(id, balance[id]);
+                lastVertexId = id;
+                count++;
+            }
+
+        // second pass: the edges and their adjacency
+        Edge[] edges = new Edge[Math.max(numberOfEdges, 1)];
+        int maxAbsCost = 0;
+        for (int e = 0; e < numberOfEdges; e++)
+        {
+            Vertex u = vertices[from[e]], v = vertices[to[e]];
+            if (u == null)
+            {
+                u = vertices[from[e]] = new Vertex(from[e], 0);
+                lastVertexId = Math.max(lastVertexId, from[e]);
+                count++;
+            }
+            if (v == null)
+            {
+                v = vertices[to[e]] = new Vertex(to[e], 0);
+                lastVertexId = Math.max(lastVertexId, to[e]);
+                count++;
+            }
+
+            Edge edge = new Edge(lowerCapacity[e], cost[e], lowerCapacity[e], upperCapacity[e], u, v);
+            edge.id = edge.index = e;
+            u.outgoing.add(edge);
+            v.ingoing.add(edge);
+            edges[e] = edge;
+            maxAbsCost = Math.max(maxAbsCost, Math.abs(cost[e]));
+        }
+
+        return new Graph(vertices, count, lastVertexId, edges, numberOfEdges, maxAbsCost);
+    }
+
+    // checks an id and grows the vertex arrays if necessary
+    private void checkId(int id)
+    {
+        if (id < 0)
+            throw new IllegalArgumentException("Vertex id " + id + " out of range.");
+        if (id >= balance.length)
+            growVertices(id + 1);
+        vertexDomainSize = Math.max(vertexDomainSize, id + 1);
+    }
+
+    private static int newLength(int length, int minSize)
+    {
+        return Math.max(minSize, length < Integer.MAX_VALUE >> 1 ? length << 1 : Integer.MAX_VALUE);
+    }
+
+    private void growVertices(int minSize)
+    {
+        int l = newLength(balance.length, minSize);
+        balance = Arrays.copyOf(balance, l);
+        added = Arrays.copyOf(added, l);
+    }
+
+    private void growEdges(int minSize)
+    {
+        int l = newLength(from.length, minSize);
+        from = Arrays.copyOf(from, l);
+        to = Arrays.copyOf(to, l);
+        lowerCapacity = Arrays.copyOf(lowerCapacity, l);
+        upperCapacity = Arrays.copyOf(upperCapacity, l);
+        cost = Arrays.copyOf(cost, l);
+    }
+}
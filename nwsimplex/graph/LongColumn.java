@@ -0,0 +1,196 @@
+package nwsimplex.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed size column of long values which is stored outside of the java heap.
+ * Since a single ByteBuffer is limited to 2GB, the column is split into chunks
+ * of {@code 2^CHUNK_SHIFT} longs each. A chunk is a region of a memory mapped
+ * file, which is a deleted temporary file for anonymous columns. The values
+ * are little endian unless another byte order is specified.
+ *
+ * @author mfj
+ */
+public class LongColumn extends Column
+{
+
+    // long views of the raw buffers
+    private final LongBuffer[] chunks;
+    private final int size;
+
+    private LongColumn(ByteBuffer[] buffers, ByteOrder order, boolean anonymous)
+    {
+        super(buffers, anonymous);
+        this.chunks = new LongBuffer[buffers.length];
+        long longs = 0;
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i].order(order);
+            chunks[i] = buffers[i].asLongBuffer();
+            longs += chunks[i].capacity();
+        }
+        this.size = (int) longs;
+    }
+
+    /**
+     * Allocates a new anonymous column. All values are initially zero.
+     *
+     * @param size the number of longs
+     * @return the allocated column
+     * @throws IOException if the temporary file can not be mapped
+     */
+    public static LongColumn allocate(int size) throws IOException
+    {
+        return new LongColumn(allocateBuffers(size, 3), BYTE_ORDER, true);
+    }
+
+    /**
+     * Maps a column to a region of a file, which is grown if necessary.
+     *
+     * @param channel a channel opened for reading and writing
+     * @param offset the position in bytes where the column starts
+     * @param size the number of longs
+     * @return the mapped column
+     * @throws IOException if the region can not be mapped
+     */
+    public static LongColumn map(FileChannel channel, long offset, int size) throws IOException
+    {
+        return map(channel, FileChannel.MapMode.READ_WRITE, BYTE_ORDER, offset, size);
+    }
+
+    /**
+     * Maps a column to a region of a file.
+     *
+     * @param channel the channel, which must be opened according to the mode
+     * @param mode the mapping mode
+     * @param order the byte order of the stored longs
+     * @param offset the position in bytes where the column starts
+     * @param size the number of longs
+     * @return the mapped column
+     * @throws IOException if the region can not be mapped
+     */
+    public static LongColumn map(FileChannel channel, FileChannel.MapMode mode, ByteOrder order, long offset, int size)
+            throws IOException
+    {
+        return new LongColumn(mapBuffers(channel, mode, offset, size, 3), order, false);
+    }
+
+    /**
+     * Gets the number of bytes required by a column of the specified size.
+     *
+     * @param size the number of longs
+     * @return {@code 8 * size}
+     */
+    public static long byteSize(int size)
+    {
+        return (long) size << 3;
+    }
+
+    /**
+     * Gets the number of longs within this column.
+     *
+     * @return the size of this column
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index the index
+     * @return the value
+     */
+    public long get(int index)
+    {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index the index
+     * @param value the new value
+     */
+    public void set(int index, long value)
+    {
+        chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Adds a value to the value at the specified index.
+     *
+     * @param index the index
+     * @param value the value to add
+     */
+    public void add(int index, long value)
+    {
+        LongBuffer chunk = chunks[index >>> CHUNK_SHIFT];
+        int i = index & CHUNK_MASK;
+        chunk.put(i, chunk.get(i) + value);
+    }
+
+    /**
+     * Copies a range of this column into an array. This can be used to process
+     * the column blockwise on the heap.
+     *
+     * @param from the first index to copy
+     * @param dst the destination array
+     * @param offset the offset within the destination array
+     * @param length the number of longs to copy
+     */
+    public void get(int from, long[] dst, int offset, int length)
+    {
+        while (length > 0)
+        {
+            LongBuffer chunk = chunks[from >>> CHUNK_SHIFT].duplicate();
+            int i = from & CHUNK_MASK;
+            int n = Math.min(length, chunk.capacity() - i);
+            chunk.position(i);
+            chunk.get(dst, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies an array into a range of this column.
+     *
+     * @param from the first index to write
+     * @param src the source array
+     * @param offset the offset within the source array
+     * @param length the number of longs to copy
+     */
+    public void set(int from, long[] src, int offset, int length)
+    {
+        while (length > 0)
+        {
+            LongBuffer chunk = chunks[from >>> CHUNK_SHIFT].duplicate();
+            int i = from & CHUNK_MASK;
+            int n = Math.min(length, chunk.capacity() - i);
+            chunk.position(i);
+            chunk.put(src, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Sets all values of this column.
+     *
+     * @param value the new value
+     */
+    public void fill(long value)
+    {
+        for (LongBuffer chunk : chunks)
+            for (int i = 0; i < chunk.capacity(); i++)
+                chunk.put(i, value);
+    }
+}
@@ -0,0 +1,472 @@
+package nwsimplex.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * A column oriented graph whose data is kept outside of the java heap, so that
+ * the heap usage does not depend on the size of the instance. Each edge
+ * attribute (origin, target, cost, capacities and flow) as well as each vertex
+ * attribute (balance and potential) is stored within an {@link IntColumn},
+ * except for the potentials which need a {@link LongColumn}.
+ *
+ * Edges are identified by their index, ranging from zero to
+ * {@code getNumberOfEdges() - 1}, vertices by their id ranging from zero to the
+ * specified domainsize of the graph.
+ *
+ * The columns are either anonymous or mapped to a file. A mapped graph can be
+ * reopened by {@link #open(Path)}, which can be used to hand instances between
+ * processes without parsing them again. All values are little endian, the
+ * header records the byte order so that a file of another order is rejected.
+ *
+ * The graph is solved by an {@link nwsimplex.core.OffHeapSolver}, which
+ * writes the flows and potentials into the columns of this graph.
+ *
+ * @author mfj
+ */
+public class OffHeapGraph implements Closeable
+{
+
+    // magic number and layout of the file header
+    private static final int MAGIC = 0x4E574F48;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int H_MAGIC = 0, H_VERSION = 1, H_DOMAIN = 2,
+            H_CAPACITY = 3, H_EDGES = 4, H_MAX_COST = 5, H_BYTE_ORDER = 6;
+    // reads as this value only in the byte order it was written in
+    private static final int BYTE_ORDER_MARK = 0x01020304;
+    // the header, which is also mapped for file backed graphs
+    private final IntColumn header;
+    // the edge columns
+    private final IntColumn from, to, cost, lowerCapacity, upperCapacity, flow;
+    // the vertex columns
+    private final IntColumn balance;
+    private final LongColumn potential;
+    // the underlying file or null if this graph is anonymous
+    private final FileChannel channel;
+    private final int vertexDomainSize;
+    private final int edgeCapacity;
+    private int numberOfEdges;
+    private int maxAbsCost;
+
+    private OffHeapGraph(IntColumn header, IntColumn[] columns, LongColumn potential, FileChannel channel)
+    {
+        this.header = header;
+        this.from = columns[0];
+        this.to = columns[1];
+        this.cost = columns[2];
+        this.lowerCapacity = columns[3];
+        this.upperCapacity = columns[4];
+        this.flow = columns[5];
+        this.balance = columns[6];
+        this.potential = potential;
+        this.channel = channel;
+        this.vertexDomainSize = header.get(H_DOMAIN);
+        this.edgeCapacity = header.get(H_CAPACITY);
+        this.numberOfEdges = header.get(H_EDGES);
+        this.maxAbsCost = header.get(H_MAX_COST);
+    }
+
+    /**
+     * Allocates an empty anonymous graph.
+     *
+     * @param vertexDomainSize the range of the vertex id's
+     * @param edgeCapacity the maximum number of edges
+     * @return the allocated graph
+     * @throws IOException if the columns can not be allocated
+     */
+    public static OffHeapGraph allocate(int vertexDomainSize, int edgeCapacity) throws IOException
+    {
+        IntColumn header = IntColumn.allocate(HEADER_SIZE);
+        initHeader(header, vertexDomainSize, edgeCapacity);
+        IntColumn[] columns = new IntColumn[7];
+        for (int i = 0; i < 6; i++)
+            columns[i] = IntColumn.allocate(edgeCapacity);
+        columns[6] = IntColumn.allocate(vertexDomainSize);
+        return new OffHeapGraph(header, columns, LongColumn.allocate(vertexDomainSize), null);
+    }
+
+    /**
+     * Creates an empty graph which is mapped to the specified file. An
+     * existing file is overwritten.
+     *
+     * @param file the file
+     * @param vertexDomainSize the range of the vertex id's
+     * @param edgeCapacity the maximum number of edges
+     * @return the mapped graph
+     * @throws IOException if the file can not be mapped
+     */
+    public static OffHeapGraph create(Path file, int vertexDomainSize, int edgeCapacity) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        IntColumn header = IntColumn.map(channel, 0, HEADER_SIZE);
+        initHeader(header, vertexDomainSize, edgeCapacity);
+        return map(channel, header, vertexDomainSize, edgeCapacity);
+    }
+
+    /**
+     * Opens a graph which was previously created by
+     * {@link #create(Path, int, int)}.
+     *
+     * @param file the file
+     * @return the mapped graph
+     * @throws IOException if the file can not be mapped or is not valid
+     */
+    public static OffHeapGraph open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < IntColumn.byteSize(HEADER_SIZE))
+        {
+            channel.close();
+            throw new IOException("File " + file + " is not a graph file.");
+        }
+        IntColumn header = IntColumn.map(channel, 0, HEADER_SIZE);
+        if (header.get(H_MAGIC) != MAGIC || header.get(H_VERSION) != VERSION
+                || header.get(H_BYTE_ORDER) != BYTE_ORDER_MARK)
+        {
+            channel.close();
+            throw new IOException("File " + file + " is not a graph file.");
+        }
+        return map(channel, header, header.get(H_DOMAIN), header.get(H_CAPACITY));
+    }
+
+    /**
+     * Creates an anonymous copy of the specified graph. The edges are indexed
+     * in the order of {@link Graph#edgeIterator()}.
+     *
+     * @param graph the graph to copy
+     * @return the copy
+     * @throws IOException if the columns can not be allocated
+     */
+    public static OffHeapGraph copyOf(Graph graph) throws IOException
+    {
+        OffHeapGraph copy = allocate(graph.getVertexDomainSize(), graph.getNumberOfEdges());
+        Iterator<Vertex> vertices = graph.vertexIterator();
+        while (vertices.hasNext())
+        {
+            Vertex v = vertices.next();
+            copy.setBalance(v.ID, v.balance);
+            copy.setPotential(v.ID, v.potential);
+        }
+        Iterator<Edge> edges = graph.edgeIterator();
+        while (edges.hasNext())
+        {
+            Edge e = edges.next();
+            copy.addEdge(e.flow, (int) e.cost, e.lowerCapacity, e.upperCapacity, e.from.ID, e.to.ID);
+        }
+        return copy;
+    }
+
+    private static void initHeader(IntColumn header, int vertexDomainSize, int edgeCapacity)
+    {
+        if (vertexDomainSize < 0 || edgeCapacity < 0)
+            throw new IllegalArgumentException();
+        header.set(H_MAGIC, MAGIC);
+        header.set(H_VERSION, VERSION);
+        header.set(H_DOMAIN, vertexDomainSize);
+        header.set(H_CAPACITY, edgeCapacity);
+        header.set(H_BYTE_ORDER, BYTE_ORDER_MARK);
+    }
+
+    private static OffHeapGraph map(FileChannel channel, IntColumn header, int vertexDomainSize, int edgeCapacity)
+            throws IOException
+    {
+        IntColumn[] columns = new IntColumn[7];
+        long offset = IntColumn.byteSize(HEADER_SIZE);
+        for (int i = 0; i < 7; i++)
+        {
+            int size = i < 6 ? edgeCapacity : vertexDomainSize;
+            columns[i] = IntColumn.map(channel, offset, size);
+            offset += IntColumn.byteSize(size);
+        }
+        LongColumn potential = LongColumn.map(channel, offset, vertexDomainSize);
+        return new OffHeapGraph(header, columns, potential, channel);
+    }
+
+    /**
+     * Gets the total amount of edges.
+     *
+     * @return the total amount of edges.
+     */
+    public int getNumberOfEdges()
+    {
+        return numberOfEdges;
+    }
+
+    /**
+     * Gets the maximum number of edges this graph can hold.
+     *
+     * @return the edge capacity
+     */
+    public int getEdgeCapacity()
+    {
+        return edgeCapacity;
+    }
+
+    /**
+     * Gets the range of the vertex id's.
+     *
+     * @return the domainsize
+     */
+    public int getVertexDomainSize()
+    {
+        return vertexDomainSize;
+    }
+
+    /**
+     * Gets the maximum absolut cost of all edges within this graph.
+     *
+     * @return max |c(u,v)|
+     */
+    public int getMaxAbsoluteCost()
+    {
+        return maxAbsCost;
+    }
+
+    /**
+     * Adds a new edge connecting two vertices specified by their id's.
+     *
+     * @param flow
+     * @param cost
+     * @param lowerCapacity
+     * @param upperCapacity
+     * @param fromId
+     * @param toId
+     * @return the index of the new edge
+     * @throws IllegalStateException if the edge capacity is exhausted
+     * @throws IllegalArgumentException if an id is out of range
+     */
+    public int addEdge(int flow, int cost, int lowerCapacity, int upperCapacity, int fromId, int toId)
+    {
+        if (numberOfEdges == edgeCapacity)
+            throw new IllegalStateException("Edge capacity of " + edgeCapacity + " exhausted.");
+        if (fromId < 0 || fromId >= vertexDomainSize || toId < 0 || toId >= vertexDomainSize)
+            throw new IllegalArgumentException();
+
+        int e = numberOfEdges;
+        this.from.set(e, fromId);
+        this.to.set(e, toId);
+        this.cost.set(e, cost);
+        this.lowerCapacity.set(e, lowerCapacity);
+        this.upperCapacity.set(e, upperCapacity);
+        this.flow.set(e, flow);
+
+        maxAbsCost = Math.max(maxAbsCost, Math.abs(cost));
+        header.set(H_MAX_COST, maxAbsCost);
+        header.set(H_EDGES, ++numberOfEdges);
+        return e;
+    }
+
+    /**
+     * Gets the id of the vertex from which the specified edge goes out.
+     */
+    public int getFrom(int edge)
+    {
+        return from.get(edge);
+    }
+
+    /**
+     * Gets the id of the vertex into which the specified edge goes in.
+     */
+    public int getTo(int edge)
+    {
+        return to.get(edge);
+    }
+
+    /**
+     * Gets the cost of the specified edge.
+     */
+    public int getCost(int edge)
+    {
+        return cost.get(edge);
+    }
+
+    /**
+     * Gets the lower capacity of the specified edge.
+     */
+    public int getLowerCapacity(int edge)
+    {
+        return lowerCapacity.get(edge);
+    }
+
+    /**
+     * Gets the upper capacity of the specified edge.
+     */
+    public int getUpperCapacity(int edge)
+    {
+        return upperCapacity.get(edge);
+    }
+
+    /**
+     * Gets the flow of the specified edge.
+     */
+    public int getFlow(int edge)
+    {
+        return flow.get(edge);
+    }
+
+    /**
+     * Sets the flow of the specified edge.
+     */
+    public void setFlow(int edge, int value)
+    {
+        flow.set(edge, value);
+    }
+
+    /**
+     * Augments the flow of the specified edge.
+     */
+    public void addFlow(int edge, int delta)
+    {
+        flow.add(edge, delta);
+    }
+
+    /**
+     * Indicates that the edge flow reaches the lower bound
+     *
+     * @return {@code flow == lowerCapacity}
+     */
+    public boolean hasLowerBound(int edge)
+    {
+        return flow.get(edge) == lowerCapacity.get(edge);
+    }
+
+    /**
+     * Indicates that the edge flow reaches the upper bound
+     *
+     * @return {@code flow == upperCapacity}
+     */
+    public boolean hasUpperBound(int edge)
+    {
+        return flow.get(edge) == upperCapacity.get(edge);
+    }
+
+    /**
+     * Gets the reduced costs of the specified edge.
+     *
+     * @return {@code cost - from.potential + to.potential}
+     */
+    public long reducedCost(int edge)
+    {
+        return cost.get(edge) - potential.get(from.get(edge)) + potential.get(to.get(edge));
+    }
+
+    /**
+     * Gets the balance of the specified vertex.
+     */
+    public int getBalance(int vertex)
+    {
+        return balance.get(vertex);
+    }
+
+    /**
+     * Sets the balance of the specified vertex.
+     */
+    public void setBalance(int vertex, int value)
+    {
+        balance.set(vertex, value);
+    }
+
+    /**
+     * Gets the potential of the specified vertex.
+     */
+    public long getPotential(int vertex)
+    {
+        return potential.get(vertex);
+    }
+
+    /**
+     * Sets the potential of the specified vertex.
+     */
+    public void setPotential(int vertex, long value)
+    {
+        potential.set(vertex, value);
+    }
+
+    /**
+     * Gets the column of the origins of all edges, aligned with the edge
+     * indices. Can be used to read the edges blockwise, it must not be
+     * modified.
+     */
+    public IntColumn fromColumn()
+    {
+        return from;
+    }
+
+    /**
+     * Gets the column of the targets of all edges, aligned with the edge
+     * indices. Can be used to read the edges blockwise, it must not be
+     * modified.
+     */
+    public IntColumn toColumn()
+    {
+        return to;
+    }
+
+    /**
+     * Gets the column of the costs of all edges, aligned with the edge
+     * indices. Can be used to read the edges blockwise, it must not be
+     * modified.
+     */
+    public IntColumn costColumn()
+    {
+        return cost;
+    }
+
+    /**
+     * Gets the column of all edge flows, aligned with the edge indices. Can be
+     * used to process the flows blockwise.
+     */
+    public IntColumn flowColumn()
+    {
+        return flow;
+    }
+
+    /**
+     * Gets the column of all vertex potentials, aligned with the vertex id's.
+     */
+    public LongColumn potentialColumn()
+    {
+        return potential;
+    }
+
+    /**
+     * Writes all changes to the underlying file. Does nothing for anonymous
+     * graphs.
+     */
+    public void force()
+    {
+        if (channel == null)
+            return;
+        header.force();
+        from.force();
+        to.force();
+        cost.force();
+        lowerCapacity.force();
+        upperCapacity.force();
+        flow.force();
+        balance.force();
+        potential.force();
+    }
+
+    /**
+     * Flushes and closes the underlying file. The memory of the columns is
+     * released once this graph is no longer referenced.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (channel != null)
+        {
+            force();
+            channel.close();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package nwsimplex.graph;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * A Datastructure that represents a Spanning Tree, which is a tree that
@@ -14,13 +17,35 @@ import java.util.Queue;
  * Since this SpanningTree is used for the networksimplex algorithm. each edge
  * within the spanningtree satisfies has reduced costs of zero.
  *
+ * A pivot shifts the potentials and updates the depths of the re-hung
+ * subtree. If a pool is set, the update of a subtree which exceeds a size
+ * threshold is split into tasks that update disjoint parts of the subtree in
+ * parallel, smaller subtrees are updated serially.
+ *
+ * The potentials can be mirrored into an array indexed by the vertex id, see
+ * {@link #setPotentialMirror(long[])}, which is read by the column wise
+ * pricing kernels.
+ *
  * @author mfj
  */
 public class SpanningTree
 {
 
+    /**
+     * the default number of vertices which a subtree must exceed before its
+     * update is done in parallel
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 15;
+    // the number of vertices a task updates before it splits off half of its
+    // remaining vertices
+    private static final int SPLIT_SIZE = 1 << 12;
     private Vertex root;
     private final TreeIterator treeIterator;
+    // null if subtrees are always updated serially
+    private ForkJoinPool pool;
+    private int parallelThreshold = Integer.MAX_VALUE;
+    // the potential of each vertex indexed by its id, null if not mirrored
+    private long[] potentials;
     /**
      * An instance of the CycleIterator which can be recycled by resetting.
      */
@@ -38,6 +63,42 @@ public class SpanningTree
         CYCLE_ITERATOR_INSTANCE = new CycleIterator(null, null);
     }
 
+    /**
+     * Sets the pool which updates large subtrees in parallel.
+     *
+     * @param pool the pool or null to update all subtrees serially
+     * @param threshold the number of vertices a subtree must exceed before
+     * its update is done in parallel, for example
+     * {@link #DEFAULT_PARALLEL_THRESHOLD}
+     */
+    public void setParallelism(ForkJoinPool pool, int threshold)
+    {
+        if (threshold < 1)
+            throw new IllegalArgumentException();
+        this.pool = pool;
+        this.parallelThreshold = pool == null ? Integer.MAX_VALUE : threshold;
+    }
+
+    /**
+     * Sets an array which mirrors the potentials of the vertices within this
+     * tree, indexed by their id. The current potentials are copied into the
+     * array, afterwards every change of a potential is written through.
+     *
+     * @param potentials the mirror, which must be larger than the largest
+     * vertex id, or null to stop mirroring
+     */
+    public void setPotentialMirror(long[] potentials)
+    {
+        this.potentials = potentials;
+        if (potentials == null)
+            return;
+        treeIterator.setRoot(root);
+        treeIterator.next();
+        Vertex v;
+        while ((v = treeIterator.next()) != null)
+            potentials[v.ID] = v.potential;
+    }
+
     /**
      * Gets the root vertex of this cycle tree.
      *
@@ -60,6 +121,32 @@ public class SpanningTree
         return e.to == root || e.from == root;
     }
 
+    /**
+     * Tests if a tree edge which is connected to the root carries flow.
+     *
+     * @return true if the flow of an edge connected to the root is nonzero
+     */
+    public boolean hasRootFlow()
+    {
+        for (Vertex v = root.child; v != null; v = v.rightSibbling)
+            if (v.treeEdge.flow != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Gets the total flow on the tree edges which are connected to the root.
+     *
+     * @return the sum of the flows of the artificial edges
+     */
+    public long getRootFlow()
+    {
+        long flow = 0;
+        for (Vertex v = root.child; v != null; v = v.rightSibbling)
+            flow += v.treeEdge.flow;
+        return flow;
+    }
+
     /**
      * Tests if the specified edge is upward pointing within the spanningtree
      * meaning that the target vertex is closer to the root then the origin.
@@ -100,8 +187,9 @@ public class SpanningTree
     }
 
     /**
-     * Adds a new Edge which connects a vertex to the root node with a upward
-     * pointing edge.
+     * Adds a new Edge which connects a vertex to the root node with a downward
+     * pointing edge. The potential of the vertex is chosen such that the edge
+     * has reduced costs of zero.
      *
      * @param flow the edge flow
      * @param cost the cost of the edge
@@ -110,16 +198,20 @@ public class SpanningTree
      * @param to the origin vertex
      * @return the Edge that was added
      */
-    public Edge addEdgeFromRoot(int flow, int cost, int lowerCapacity, int upperCapacity, Vertex to)
+    public Edge addEdgeFromRoot(int flow, long cost, int lowerCapacity, int upperCapacity, Vertex to)
     {
         Edge e = new Edge(flow, cost, lowerCapacity, upperCapacity, root, to);
+        detach(to);
         addToTree(to, e);
+        to.potential = root.potential - cost;
+        mirror(to);
         return e;
     }
 
     /**
-     * Adds a new Edge which connects a vertex to the root node with a downward
-     * pointing edge.
+     * Adds a new Edge which connects a vertex to the root node with a upward
+     * pointing edge. The potential of the vertex is chosen such that the edge
+     * has reduced costs of zero.
      *
      * @param flow the edge flow
      * @param cost the cost of the edge
@@ -128,58 +220,144 @@ public class SpanningTree
      * @param from the origin vertex
      * @return the Edge that was added
      */
-    public Edge addEdgeToRoot(int flow, int cost, int lowerCapacity, int upperCapacity, Vertex from)
+    public Edge addEdgeToRoot(int flow, long cost, int lowerCapacity, int upperCapacity, Vertex from)
     {
         Edge e = new Edge(flow, cost, lowerCapacity, upperCapacity, from, root);
+        detach(from);
         addToTree(from, e);
+        from.potential = root.potential + cost;
+        mirror(from);
         return e;
     }
 
     /**
-     * Adds a new edge to this spanning tree and removes the edge which is the
-     * upward connecting arch of the lowerLeaving vertex.
+     * Rebuilds this tree from the tree edge and the potential of each vertex,
+     * e.g. to resume from a checkpoint. Any previous tree is discarded and the
+     * depths are recomputed.
      *
-     * @param entering the entering arch
-     * @param leaving the eaving arch
-     * @param lowerEntering the lower vertex of the entering arch
+     * @param vertices the vertices of the tree except the root
+     * @param treeEdges the edge which connects each vertex to its parent,
+     * edges connected to the root must be created by the caller
+     * @param potentials the potential of each vertex
+     * @param count the number of vertices
+     * @throws IllegalArgumentException if the edges do not form a spanning
+     * tree
      */
-    public void addEdge(Edge entering, Edge leaving, Vertex lowerEntering)
+    public void rebuild(Vertex[] vertices, Edge[] treeEdges, long[] potentials, int count)
+    {
+        detach(root);
+        for (int i = 0; i < count; i++)
+            detach(vertices[i]);
+        for (int i = 0; i < count; i++)
+        {
+            Vertex v = vertices[i];
+            Edge e = treeEdges[i];
+            if (e.from != v && e.to != v)
+                throw new IllegalArgumentException("Edge is not incident to vertex " + v.ID);
+            v.potential = potentials[i];
+            mirror(v);
+            // the depths of the parents are not known yet, they are set below
+            addToTree(v, e);
+        }
+
+        // every vertex must be reachable from the root
+        treeIterator.setRoot(root);
+        treeIterator.next();
+        int reached = 0;
+        Vertex v;
+        while ((v = treeIterator.next()) != null)
+        {
+            v.depth = v.parent.depth + 1;
+            reached++;
+        }
+        if (reached != count)
+            throw new IllegalArgumentException("The edges do not form a spanning tree.");
+    }
+
+    private void mirror(Vertex v)
     {
-        // removes leaving edge from tree
-        Vertex lowerLeaving = leaving.from.depth > leaving.to.depth ? leaving.from : leaving.to;
-        removeFromTree(lowerLeaving);
+        if (potentials != null)
+            potentials[v.ID] = v.potential;
+    }
 
-        // reverse predessesor relations from leaving to entering arc
-        Vertex next, prev = null, curr = lowerEntering;
-        while (curr != null)
+    /**
+     * Recomputes the potentials of all vertices from the costs of the tree
+     * edges, after these costs were changed. The tree itself is not changed.
+     */
+    public void computePotentials()
+    {
+        treeIterator.setRoot(root);
+        treeIterator.next();
+        Vertex v;
+        while ((v = treeIterator.next()) != null)
         {
-            next = curr.parent;
-            curr.parent = prev;
-            prev = curr;
-            curr = next;
+            Edge e = v.treeEdge;
+            v.potential = e.from == v ? v.parent.potential + e.cost : v.parent.potential - e.cost;
+            mirror(v);
         }
+    }
+
+    // clears the tree links a vertex may still have from a previous tree
+    private static void detach(Vertex v)
+    {
+        v.parent = v.child = v.leftSibbling = v.rightSibbling = null;
+        v.treeEdge = null;
+    }
 
+    /**
+     * Adds a new edge to this spanning tree and removes the leaving edge. The
+     * removal of the leaving edge cuts off a subtree, which contains the lower
+     * vertex of the entering edge. This subtree is re-hung below the other
+     * vertex of the entering edge, by reversing the path from the lower
+     * entering to the lower leaving vertex, and the depths and potentials of
+     * its vertices are updated.
+     *
+     * @param entering the entering arch
+     * @param leaving the leaving arch, which must be different from the
+     * entering arch
+     * @param lowerEntering the vertex of the entering arch which lies within
+     * the subtree below the leaving arch
+     * @return the number of vertices within the re-hung subtree
+     */
+    public int addEdge(Edge entering, Edge leaving, Vertex lowerEntering)
+    {
+        Vertex lowerLeaving = leaving.from.treeEdge == leaving ? leaving.from : leaving.to;
+        // the potentials of the subtree are shifted such that the reduced
+        // costs of the entering arc become zero
+        long change = lowerEntering == entering.from ? entering.reducedCost() : -entering.reducedCost();
+
+        // reverse predessesor relations from entering to leaving arc
+        Vertex curr = lowerEntering;
+        Edge edge = entering;
+        while (true)
+        {
+            Vertex parent = curr.parent;
+            Edge treeEdge = curr.treeEdge;
+            removeFromTree(curr);
+            addToTree(curr, edge);
+            if (curr == lowerLeaving)
+                break;
+            edge = treeEdge;
+            curr = parent;
+        }
 
-        // add entering arc
-        addToTree(lowerEntering, entering);
-        update(lowerEntering);
+        return update(lowerEntering, change);
     }
 
     protected void removeFromTree(Vertex v)
     {
         Vertex parent = v.parent;
-        v.treeEdge = null;
-        v.parent = null;
-
         Vertex left = v.leftSibbling, right = v.rightSibbling;
         if (left != null)
             left.rightSibbling = right;
         if (right != null)
             right.leftSibbling = left;
-        v.leftSibbling = v.rightSibbling = null;
-
         if (v == parent.child)
-            parent.child = v.rightSibbling;
+            parent.child = right;
+
+        v.treeEdge = null;
+        v.parent = null;
+        v.leftSibbling = v.rightSibbling = null;
     }
 
     protected void addToTree(Vertex v, Edge e)
@@ -187,27 +365,97 @@ public class SpanningTree
         v.treeEdge = e;
         Vertex parent = e.from == v ? e.to : e.from;
         v.parent = parent;
-        if (parent.child == null)
-            parent.child = v;
-        else
+        v.depth = parent.depth + 1;
+        if (parent.child != null)
         {
             parent.child.leftSibbling = v;
             v.rightSibbling = parent.child;
-            parent.child = v;
         }
+        parent.child = v;
     }
 
-    private void update(Vertex lowerEntering)
+    // shifts the potentials and updates the depths of a subtree, returns its
+    // size
+    private int update(Vertex subtreeRoot, long change)
     {
-        treeIterator.setRoot(lowerEntering);
+        treeIterator.setRoot(subtreeRoot);
+        int size = 0;
         Vertex v;
         while ((v = treeIterator.next()) != null)
         {
-            Edge e = v.treeEdge;
-            v.potential += isUpwardPointing(e)
-                    ? e.reducedCost() - v.potential : v.potential - e.reducedCost();
+            size++;
+            v.potential += change;
+            mirror(v);
+            v.depth = v.parent.depth + 1;
+            if (size == parallelThreshold && treeIterator.hasNext())
+                return size + updateParallel(change);
+        }
+        return size;
+    }
+
+    // updates the vertices which the tree iterator has not visited yet, the
+    // subtrees of these vertices are disjoint and their parents are updated
+    private int updateParallel(long change)
+    {
+        ArrayDeque<Vertex> pending = new ArrayDeque<Vertex>(treeIterator.queue.size() + 1);
+        pending.add(treeIterator.next);
+        pending.addAll(treeIterator.queue);
+        treeIterator.setRoot(null);
+        return pool.invoke(new UpdateTask(pending, change, potentials));
+    }
+
+    /**
+     * Updates the subtrees of a set of vertices in bfs order. Each time a task
+     * has updated {@value #SPLIT_SIZE} vertices, it forks a new task for half
+     * of its pending vertices, so the work is balanced even if the subtrees
+     * have very different sizes.
+     */
+    @SuppressWarnings("serial")
+    private static class UpdateTask extends RecursiveTask<Integer>
+    {
+
+        private final ArrayDeque<Vertex> queue;
+        private final long change;
+        // the potential mirror of the tree or null
+        private final long[] potentials;
 
-            v.depth = v.parent.depth;
+        UpdateTask(ArrayDeque<Vertex> queue, long change, long[] potentials)
+        {
+            this.queue = queue;
+            this.change = change;
+            this.potentials = potentials;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            List<UpdateTask> forked = new ArrayList<UpdateTask>();
+            int size = 0, sinceSplit = 0;
+            Vertex v;
+            while ((v = queue.poll()) != null)
+            {
+                size++;
+                v.potential += change;
+                if (potentials != null)
+                    potentials[v.ID] = v.potential;
+                v.depth = v.parent.depth + 1;
+                for (Vertex c = v.child; c != null; c = c.rightSibbling)
+                    queue.add(c);
+
+                if (++sinceSplit >= SPLIT_SIZE && queue.size() > 1)
+                {
+                    ArrayDeque<Vertex> half = new ArrayDeque<Vertex>(queue.size() / 2 + 1);
+                    for (int i = queue.size() / 2; i > 0; i--)
+                        half.add(queue.pollLast());
+                    UpdateTask task = new UpdateTask(half, change, potentials);
+                    task.fork();
+                    forked.add(task);
+                    sinceSplit = 0;
+                }
+            }
+            for (UpdateTask task : forked)
+                size += task.join();
+            return size;
         }
     }
 
@@ -239,6 +487,8 @@ public class SpanningTree
     /**
      * An class which can be used to traverse all vertices within a subtree in
      * bfs order. This Iterator can be reset by defining a new root vertex.
+     * Unlike other iterators, {@link #next()} returns null once all vertices
+     * were traversed.
      */
     public class TreeIterator implements Iterator<Vertex>
     {
@@ -254,10 +504,7 @@ public class SpanningTree
         public TreeIterator(Vertex root)
         {
             this.next = root;
-            this.queue = new LinkedList<Vertex>();
-
-            if (next.child != null)
-                queue.add(next.child);
+            this.queue = new ArrayDeque<Vertex>();
         }
 
         /**
@@ -270,9 +517,6 @@ public class SpanningTree
         {
             this.next = root;
             queue.clear();
-
-            if (next.child != null)
-                queue.add(next.child);
         }
 
         @Override
@@ -285,18 +529,12 @@ public class SpanningTree
         public Vertex next()
         {
             Vertex result = next;
-
-            next = queue.poll();
-            if (next != null)
+            if (result != null)
             {
-                if (next.child != null)
-                    queue.add(next.child);
-
-                Vertex neigh = next;
-                while ((neigh = neigh.rightSibbling) != null)
-                    queue.add(neigh);
+                for (Vertex c = result.child; c != null; c = c.rightSibbling)
+                    queue.add(c);
+                next = queue.poll();
             }
-
             return result;
         }
 
@@ -436,4 +674,4 @@ public class SpanningTree
 
         Left, Right, Undefined
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
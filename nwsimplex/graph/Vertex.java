@@ -22,7 +22,7 @@ public class Vertex
     /**
      * the potential used by the networksimplex algorithm
      */
-    protected int potential;
+    protected long potential;
     /**
      * the depht inside the root of a spanning tree
      */
@@ -42,11 +42,15 @@ public class Vertex
     /**
      * outgoing edges
      */
-    protected AdjacencyList outgoing = new AdjacencyList();
+    protected AdjacencyList outgoing = new AdjacencyList(true);
     /**
      * ingoing edges
      */
-    protected AdjacencyList ingoing = new AdjacencyList();
+    protected AdjacencyList ingoing = new AdjacencyList(false);
+    /**
+     * false if this vertex was deactivated within its graph
+     */
+    protected boolean active = true;
 
     /**
      * Instantiates a new Vertex.
@@ -60,6 +64,41 @@ public class Vertex
         this.balance = balance;
     }
 
+    /**
+     * Gets the balance specified by the min-cost-flow problem.
+     */
+    public int getBalance()
+    {
+        return balance;
+    }
+
+    /**
+     * Gets the potential used by the networksimplex algorithm.
+     */
+    public long getPotential()
+    {
+        return potential;
+    }
+
+    /**
+     * Gets the edge which connects this vertex to its parent within the
+     * spanning tree.
+     *
+     * @return the tree edge or null if this vertex is not part of a tree
+     */
+    public Edge getTreeEdge()
+    {
+        return treeEdge;
+    }
+
+    /**
+     * Tests if this vertex is active, see {@link Graph#deactivateVertex(int)}.
+     */
+    public boolean isActive()
+    {
+        return active;
+    }
+
     /**
      * Gets the sum of all capacities of ingoing edges
      */
@@ -83,13 +122,31 @@ public class Vertex
     }
 
     /**
-     * Gets the netto balance.
+     * Gets the flow leaving this vertex minus the flow entering it. Unlike
+     * iterating over the adjacency lists, this does not modify any state and
+     * can therefore be called concurrently for different vertices.
+     *
+     * @return sum of f(d+) - sum of f(d-)
+     */
+    public long netOutflow()
+    {
+        long flow = 0;
+        for (Edge e = outgoing.first(); e != null; e = e.nextOut)
+            flow += e.flow;
+        for (Edge e = ingoing.first(); e != null; e = e.nextIn)
+            flow -= e.flow;
+        return flow;
+    }
+
+    /**
+     * Gets the netto balance, which is the supply left if all edges carry
+     * their lower capacity.
      *
-     * @return b + l(d+) - l(d-) {@code balance + lowerOutCapacity() - lowerInCapacity()}
+     * @return b - l(d+) + l(d-) {@code balance - lowerOutCapacity() + lowerInCapacity()}
      */
     public int nettoBalance()
     {
-        return balance + lowerOutCapacity() - lowerInCapacity();
+        return balance - lowerOutCapacity() + lowerInCapacity();
     }
 
     @Override
@@ -97,4 +154,4 @@ public class Vertex
     {
         return "ID=" + ID + ", parent=" + (parent == null ? null : parent.ID);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+package nwsimplex.util;
+
+import java.util.Arrays;
+
+/**
+ * A bounded min-heap of edge indices, which keeps the K edges with the largest
+ * keys offered to it. The key of an edge is meant to be its violation of the
+ * optimality condition, e.g. {@code -state * reducedCost}, so this heap can be
+ * used as candidate list for partial and multiple pricing.
+ *
+ * Keys and edges are stored within primitive arrays. The position of each edge
+ * within the heap is tracked, which allows to change the key of a contained
+ * edge in {@code O(log K)} after the potentials were updated.
+ *
+ * @author mfj
+ */
+public class CandidateHeap
+{
+
+    private final int[] edges;
+    private final long[] keys;
+    // the position of each edge within the heap or -1
+    private final int[] position;
+    private int size = 0;
+
+    /**
+     * Instantiates an empty heap.
+     *
+     * @param capacity the maximum number of candidates K
+     * @param numberOfEdges the range of the edge indices
+     */
+    public CandidateHeap(int capacity, int numberOfEdges)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException();
+        this.edges = new int[capacity];
+        this.keys = new long[capacity];
+        this.position = new int[numberOfEdges];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Gets the number of candidates within this heap.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of candidates.
+     */
+    public int capacity()
+    {
+        return edges.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Tests if the specified edge is a candidate.
+     */
+    public boolean contains(int edge)
+    {
+        return position[edge] >= 0;
+    }
+
+    /**
+     * Gets the edge at the specified position, which allows to iterate over
+     * all candidates in heap order.
+     *
+     * @param i the position, ranging from zero to {@code size() - 1}
+     */
+    public int edgeAt(int i)
+    {
+        return edges[i];
+    }
+
+    /**
+     * Gets the key at the specified position.
+     *
+     * @param i the position, ranging from zero to {@code size() - 1}
+     */
+    public long keyAt(int i)
+    {
+        return keys[i];
+    }
+
+    /**
+     * Gets the smallest key of all candidates, which is the key an edge must
+     * exceed to be accepted by a full heap.
+     *
+     * @throws IllegalStateException if this heap is empty
+     */
+    public long minKey()
+    {
+        if (size == 0)
+            throw new IllegalStateException();
+        return keys[0];
+    }
+
+    /**
+     * Offers an edge to this heap. If the heap is full, the edge replaces the
+     * candidate with the smallest key if its key is larger. If the edge is
+     * already a candidate, its key is changed.
+     *
+     * @param edge the edge index
+     * @param key the key of the edge
+     * @return true if the edge is a candidate afterwards
+     */
+    public boolean offer(int edge, long key)
+    {
+        if (position[edge] >= 0)
+        {
+            update(edge, key);
+            return true;
+        }
+        if (size < edges.length)
+        {
+            set(size, edge, key);
+            siftUp(size++);
+            return true;
+        }
+        if (key <= keys[0])
+            return false;
+
+        position[edges[0]] = -1;
+        set(0, edge, key);
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Changes the key of a candidate.
+     *
+     * @param edge the edge index
+     * @param key the new key
+     * @throws IllegalArgumentException if the edge is not a candidate
+     */
+    public void update(int edge, long key)
+    {
+        int i = position[edge];
+        if (i < 0)
+            throw new IllegalArgumentException("Edge " + edge + " is not a candidate.");
+        long old = keys[i];
+        keys[i] = key;
+        if (key < old)
+            siftUp(i);
+        else
+            siftDown(i);
+    }
+
+    /**
+     * Removes a candidate.
+     *
+     * @param edge the edge index
+     * @return true if the edge was a candidate
+     */
+    public boolean remove(int edge)
+    {
+        int i = position[edge];
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Removes the candidate with the smallest key.
+     *
+     * @return the removed edge
+     * @throws IllegalStateException if this heap is empty
+     */
+    public int pollMin()
+    {
+        if (size == 0)
+            throw new IllegalStateException();
+        int edge = edges[0];
+        removeAt(0);
+        return edge;
+    }
+
+    /**
+     * Removes the candidate with the largest key, which is the most violating
+     * edge. Since the largest key is within the leaves of the heap, this takes
+     * {@code O(K)}.
+     *
+     * @return the removed edge or -1 if this heap is empty
+     */
+    public int pollMax()
+    {
+        if (size == 0)
+            return -1;
+        int max = size >> 1;
+        for (int i = max + 1; i < size; i++)
+            if (keys[i] > keys[max])
+                max = i;
+        int edge = edges[max];
+        removeAt(max);
+        return edge;
+    }
+
+    /**
+     * Removes all candidates whose key is not positive, which are those edges
+     * that no longer violate the optimality condition.
+     */
+    public void removeNonPositive()
+    {
+        while (size > 0 && keys[0] <= 0)
+            removeAt(0);
+    }
+
+    /**
+     * Removes all candidates.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+            position[edges[i]] = -1;
+        size = 0;
+    }
+
+    private void removeAt(int i)
+    {
+        position[edges[i]] = -1;
+        if (--size == i)
+            return;
+        long key = keys[i];
+        set(i, edges[size], keys[size]);
+        if (keys[i] < key)
+            siftUp(i);
+        else
+            siftDown(i);
+    }
+
+    private void set(int i, int edge, long key)
+    {
+        edges[i] = edge;
+        keys[i] = key;
+        position[edge] = i;
+    }
+
+    private void siftUp(int i)
+    {
+        int edge = edges[i];
+        long key = keys[i];
+        while (i > 0)
+        {
+            int parent = (i - 1) >> 1;
+            if (keys[parent] <= key)
+                break;
+            set(i, edges[parent], keys[parent]);
+            i = parent;
+        }
+        set(i, edge, key);
+    }
+
+    private void siftDown(int i)
+    {
+        int edge = edges[i];
+        long key = keys[i];
+        int half = size >> 1;
+        while (i < half)
+        {
+            int child = (i << 1) + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (key <= keys[child])
+                break;
+            set(i, edges[child], keys[child]);
+            i = child;
+        }
+        set(i, edge, key);
+    }
+}
@@ -18,6 +18,6 @@ public class ReducedCostComparator implements Comparator<Edge>
     @Override
     public int compare(Edge t1, Edge t2)
     {
-        return Math.abs(t1.reducedCost()) - Math.abs(t1.reducedCost()); 
+        return Long.compare(Math.abs(t1.reducedCost()), Math.abs(t2.reducedCost()));
     }
 }
\ No newline at end of file